@@ -3,17 +3,32 @@ package bo;
 import java.io.Serializable;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 
 @Entity
+// Created by dao/migrations/V2__search_indexes.sql
+@Table(indexes = @Index(name = "idx_client_nom", columnList = "nom"))
+@BatchSize(size = 50)
+// Second-level cache (region "bo.Client" in dao/ehcache.xml): lookups by id skip the database
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Client implements Serializable{
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "client_id")
+	@TableGenerator(name = "client_id", table = "id_sequences", pkColumnName = "seq_name", valueColumnName = "next_val", pkColumnValue = "client", allocationSize = 50)
 	private int id;
 	private String nom;
 	private double capital;
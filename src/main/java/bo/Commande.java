@@ -5,31 +5,62 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 @Entity
+// Created by dao/migrations/V2__search_indexes.sql
+@Table(indexes = {
+	@Index(name = "idx_commande_datecmd", columnList = "datecmd"),
+	@Index(name = "idx_commande_client", columnList = "id"),
+	@Index(name = "idx_commande_client_nom", columnList = "clientNom") })
+@NamedEntityGraph(name = Commande.GRAPH_CLIENT, attributeNodes = @NamedAttributeNode("client"))
 public class Commande implements Serializable{
 
+/** Fetch plan loading the client together with the command. */
+public static final String GRAPH_CLIENT = "Commande.client";
+
 @Id
-@GeneratedValue(strategy = GenerationType.IDENTITY)
+@GeneratedValue(strategy = GenerationType.TABLE, generator = "commande_id")
+@TableGenerator(name = "commande_id", table = "id_sequences", pkColumnName = "seq_name", valueColumnName = "next_val", pkColumnValue = "commande", allocationSize = 50)
 private int idcmd;
 
 private Date datecmd;
 
 private float total;
 
-@ManyToOne
+/** Incremented on every write; a write based on an older version fails. */
+@Version
+private int version;
+
+@ManyToOne(fetch = FetchType.LAZY)
 @JoinColumn(name="id")
 private Client client;
 
+/**
+ * Name of the client in lower case, copied here so that searching commands by
+ * client name reads this table alone. Written by dao.CommandeDAO when the command
+ * is saved, and by dao.ClientDAO when the client is renamed.
+ */
+private String clientNom;
+
 @OneToMany(mappedBy = "commande")
+@BatchSize(size = 50)
 private List<Ligne_Commande> lignes = new ArrayList<>();
 
 public int getIdcmd() {
@@ -50,6 +81,12 @@ public Client getClient() {
 public void setClient(Client client) {
 	this.client = client;
 }
+public String getClientNom() {
+	return clientNom;
+}
+public void setClientNom(String clientNom) {
+	this.clientNom = clientNom;
+}
 public Commande(int idcmd, Date datecmd, Client client) {
 	super();
 	this.idcmd = idcmd;
@@ -74,6 +111,12 @@ public float getTotal() {
 public void setTotal(float total) {
 	this.total = total;
 }
+public int getVersion() {
+	return version;
+}
+public void setVersion(int version) {
+	this.version = version;
+}
 public List<Ligne_Commande> getLignes() {
 	return lignes;
 }
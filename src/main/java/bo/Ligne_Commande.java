@@ -2,26 +2,41 @@ package bo;
 
 import java.io.Serializable;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.*;
 
 
 @Entity
+// Created by dao/migrations/V2__search_indexes.sql
+@Table(indexes = {
+	@Index(name = "idx_ligne_commande_commande", columnList = "idcmd"),
+	@Index(name = "idx_ligne_commande_produit", columnList = "id") })
+@BatchSize(size = 50)
 public class Ligne_Commande implements Serializable{
 	
 @Id
-@GeneratedValue(strategy = GenerationType.IDENTITY)
+@GeneratedValue(strategy = GenerationType.TABLE, generator = "ligne_commande_id")
+@TableGenerator(name = "ligne_commande_id", table = "id_sequences", pkColumnName = "seq_name", valueColumnName = "next_val", pkColumnValue = "ligne_commande", allocationSize = 50)
 private int idligne;
 
 private int quantite;
 
-@Transient
-private float sous_total;
+/**
+ * Price of the product when the command was saved, so that the line keeps the
+ * price it was sold at. Null on lines saved before it was recorded, until
+ * service.LignePrixBackfill fills them.
+ */
+private Float prix_unitaire;
+
+/** quantite * prix_unitaire, stored so that sales figures sum this table alone. */
+private Float sous_total;
 
 @ManyToOne
 @JoinColumn(name="id")
 private Produit produit;
 
-@ManyToOne
+@ManyToOne(fetch = FetchType.LAZY)
 @JoinColumn(name="idcmd")
 private Commande commande;
 
@@ -62,8 +77,16 @@ public Ligne_Commande(int idligne, int quantite) {
 public Ligne_Commande() {
 	super();
 }
+public Float getPrix_unitaire() {
+	return prix_unitaire;
+}
+
+public void setPrix_unitaire(Float prix_unitaire) {
+	this.prix_unitaire = prix_unitaire;
+}
+
 public float getSous_total() {
-	return sous_total;
+	return sous_total == null ? 0 : sous_total;
 }
 
 public void setSous_total(float sous_total) {
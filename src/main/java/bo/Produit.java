@@ -3,26 +3,55 @@ package bo;
 import java.io.Serializable;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinColumns;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 @Entity
+// Created by dao/migrations/V2__search_indexes.sql
+@Table(indexes = {
+	@Index(name = "idx_produit_libelle", columnList = "libelle"),
+	@Index(name = "idx_produit_qtstock", columnList = "qtstock") })
+@BatchSize(size = 50)
+// Second-level cache (region "bo.Produit" in dao/ehcache.xml): lookups by id skip the database
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Produit  implements Serializable{
 @Id
-@GeneratedValue(strategy = GenerationType.IDENTITY)
+@GeneratedValue(strategy = GenerationType.TABLE, generator = "produit_id")
+@TableGenerator(name = "produit_id", table = "id_sequences", pkColumnName = "seq_name", valueColumnName = "next_val", pkColumnValue = "produit", allocationSize = 50)
 private int id;
 private String libelle;
 private float prix;
 private int qtstock;
 
+/** Incremented on every write; a write based on an older version fails. */
+@Version
+private int version;
+
+/**
+ * Ledger stock mode, for best sellers: sales append a {@link StockMovement} instead of
+ * updating this row, so concurrent orders do not wait on its lock. The available stock
+ * is then qtstock plus the movements not yet folded in by the compaction job.
+ */
+private boolean ledgerStock;
+
 
 
 @OneToMany(mappedBy = "produit")
@@ -60,6 +89,22 @@ public void setQtstock(int qtstock) {
 	this.qtstock = qtstock;
 }
 
+public int getVersion() {
+	return version;
+}
+
+public void setVersion(int version) {
+	this.version = version;
+}
+
+public boolean isLedgerStock() {
+	return ledgerStock;
+}
+
+public void setLedgerStock(boolean ledgerStock) {
+	this.ledgerStock = ledgerStock;
+}
+
 public List<Ligne_Commande> getLignes() {
 	return lignes;
 }
@@ -0,0 +1,93 @@
+package bo;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+
+/**
+ * One change of the stock of a product kept in ledger mode ({@link Produit#isLedgerStock()}).
+ * Sales append rows here instead of updating the product row; the compaction job
+ * periodically folds them into {@code Produit.qtstock} and deletes them.
+ */
+@Entity
+// Created by dao/migrations/V7__stock_ledger.sql
+@Table(indexes = @Index(name = "idx_stock_movement_produit", columnList = "produitId"))
+public class StockMovement implements Serializable {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_movement_id")
+	@TableGenerator(name = "stock_movement_id", table = "id_sequences", pkColumnName = "seq_name", valueColumnName = "next_val", pkColumnValue = "stock_movement", allocationSize = 50)
+	private long id;
+
+	private int produitId;
+
+	/** Signed change of the stock: negative for a sale. */
+	private int quantity;
+
+	/** Command that caused the movement, if any. */
+	private Integer idcmd;
+
+	private Date createdAt;
+
+	public StockMovement() {
+	}
+
+	public StockMovement(int produitId, int quantity, Integer idcmd, Date createdAt) {
+		this.produitId = produitId;
+		this.quantity = quantity;
+		this.idcmd = idcmd;
+		this.createdAt = createdAt;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public int getProduitId() {
+		return produitId;
+	}
+
+	public void setProduitId(int produitId) {
+		this.produitId = produitId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	public Integer getIdcmd() {
+		return idcmd;
+	}
+
+	public void setIdcmd(Integer idcmd) {
+		this.idcmd = idcmd;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@Override
+	public String toString() {
+		return "StockMovement [id=" + id + ", produitId=" + produitId + ", quantity=" + quantity + ", idcmd=" + idcmd + "]";
+	}
+}
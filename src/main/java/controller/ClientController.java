@@ -4,6 +4,7 @@ import bo.Client;
 import dto.ClientDTO;
 import service.ClientService;
 import java.util.List;
+import java.util.Map;
 
 public class ClientController {
     
@@ -12,6 +13,11 @@ public class ClientController {
         clientservice.create(clientdto);
     }
 
+    public int ajouterClients(List<ClientDTO> clientdtos) {
+        ClientService clientservice = new ClientService();
+        return clientservice.createAll(clientdtos);
+    }
+
     public void modifierClient(ClientDTO clientdto, int id) {
         ClientService clientservice = new ClientService();
         clientservice.update(clientdto, id);
@@ -32,6 +38,26 @@ public class ClientController {
         return clientservice.getAllClients();
     }
 
+    public List<ClientDTO> getClientsPage(ClientDTO after, int skip, int limit) {
+        ClientService clientservice = new ClientService();
+        return clientservice.getClientsPage(after, skip, limit);
+    }
+
+    public long countClients() {
+        ClientService clientservice = new ClientService();
+        return clientservice.countClients();
+    }
+
+    public List<ClientDTO> getClientsPage(Map<String, Object> filters, ClientDTO after, int skip, int limit) {
+        ClientService service = new ClientService();
+        return service.getClientsPage(filters, after, skip, limit);
+    }
+
+    public long countClients(Map<String, Object> filters) {
+        ClientService service = new ClientService();
+        return service.countClients(filters);
+    }
+
     public List<ClientDTO> searchClients(String searchTerm) {
         ClientService clientservice = new ClientService();
         return clientservice.searchClients(searchTerm);
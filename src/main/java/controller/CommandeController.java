@@ -3,8 +3,8 @@ package controller;
 import bo.Commande;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
-import dao.CommandeDAO;
 import dto.ClientDTO;
 import dto.CommandeDTO;
 import dto.Ligne_CommandeDTO;
@@ -16,28 +16,32 @@ public class CommandeController {
         new CommandeService().save(commandeDTO);
     }
 
+    public int ajouterCommandes(List<CommandeDTO> commandeDTOs) {
+        return new CommandeService().saveAll(commandeDTOs);
+    }
+
     public CommandeDTO createCommande() {
         return CommandeService.createCommandDTO();
     }
 
-    public CommandeDTO getCommande() {
-        return new CommandeService().getCommandeDTO();
+    public CommandeDTO getCommande(String draftId) {
+        return new CommandeService().getDraft(draftId);
     }
 
-    public void ajouterLigne(Ligne_CommandeDTO ligne) {
-        new CommandeService().addLigne(ligne);
+    public void ajouterLigne(String draftId, Ligne_CommandeDTO ligne) {
+        new CommandeService().addLigne(draftId, ligne);
     }
 
-    public void associerClient(ClientDTO dto) {
-        new CommandeService().addClient(dto);
+    public void associerClient(String draftId, ClientDTO dto) {
+        new CommandeService().addClient(draftId, dto);
     }
 
     public void saveCommande(CommandeDTO commande) {
         new CommandeService().save(commande);
     }
 
-    public void initialiserCommande() {
-        new CommandeService().initialiserCommande();
+    public CommandeDTO initialiserCommande(String draftId) {
+        return new CommandeService().initialiserCommande(draftId);
     }
 
     public List<CommandeDTO> getAllCommandes() {
@@ -45,19 +49,49 @@ public class CommandeController {
         return service.getAllCommandes();
     }
 
+    public List<CommandeDTO> getCommandesPage(CommandeDTO after, int skip, int limit) {
+        CommandeService service = new CommandeService();
+        return service.getCommandesPage(after, skip, limit);
+    }
+
+    public long countCommandes() {
+        CommandeService service = new CommandeService();
+        return service.countCommandes();
+    }
+
+    public List<CommandeDTO> getCommandesPage(Map<String, Object> filters, CommandeDTO after, int skip, int limit) {
+        CommandeService service = new CommandeService();
+        return service.getCommandesPage(filters, after, skip, limit);
+    }
+
+    public long countCommandes(Map<String, Object> filters) {
+        CommandeService service = new CommandeService();
+        return service.countCommandes(filters);
+    }
+
     public List<CommandeDTO> searchCommandes(String searchTerm) {
         CommandeService service = new CommandeService();
         return service.searchCommandes(searchTerm);
     }
 
+    public void abandonnerCommande(String draftId) {
+        new CommandeService().abandonner(draftId);
+    }
+
     public void saveCommandeEntity(Commande commande) {
-        CommandeDAO dao = new CommandeDAO();
+        saveCommandeEntity(commande, null);
+    }
+
+    /**
+     * @param draftId draft holding the stock reservations of a new order, released once it is saved
+     */
+    public void saveCommandeEntity(Commande commande, String draftId) {
         if (commande.getIdcmd() == 0 || commande.getIdcmd() < 1) {
             // Create new order
-            dao.create(commande);
+            new CommandeService().create(commande, draftId);
         } else {
             // Update existing order
-            dao.update(commande);
+            new CommandeService().update(commande);
         }
     }
 
@@ -0,0 +1,39 @@
+package controller;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import dto.ClientDTO;
+import dto.ClientSegmentsDTO;
+import dto.CommandeDTO;
+import dto.DashboardStatsDTO;
+import dto.ProduitDTO;
+import service.DashboardService;
+import service.QueryExecutor;
+
+/**
+ * Dashboard queries are independent: each one runs on the {@link QueryExecutor}
+ * and is returned as a future, so the widgets can fill in as their data arrives.
+ */
+public class DashboardController {
+
+    public CompletableFuture<DashboardStatsDTO> getStats() {
+        return QueryExecutor.submit(() -> new DashboardService().getStats());
+    }
+
+    public CompletableFuture<ClientSegmentsDTO> getClientSegments() {
+        return QueryExecutor.submit(() -> new DashboardService().getClientSegments());
+    }
+
+    public CompletableFuture<List<ClientDTO>> getTopClients(int limit) {
+        return QueryExecutor.submit(() -> new DashboardService().getTopClients(limit));
+    }
+
+    public CompletableFuture<List<ProduitDTO>> getLowStockProduits(int limit) {
+        return QueryExecutor.submit(() -> new DashboardService().getLowStockProduits(limit));
+    }
+
+    public CompletableFuture<List<CommandeDTO>> getRecentCommandes(int limit) {
+        return QueryExecutor.submit(() -> new DashboardService().getRecentCommandes(limit));
+    }
+}
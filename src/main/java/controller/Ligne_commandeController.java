@@ -5,12 +5,21 @@ import dto.ProduitDTO;
 import service.Ligne_CommandeService;
 
 public class Ligne_commandeController {
-public Ligne_CommandeDTO newLigne(int q,ProduitDTO p) {
-	return new Ligne_CommandeService().getNewLigne(q,p);
+public Ligne_CommandeDTO newLigne(String draftId,int q,ProduitDTO p) {
+	return new Ligne_CommandeService().getNewLigne(draftId,q,p);
 	
 }
-public boolean exists(ProduitDTO p) {
-	return new Ligne_CommandeService().exists(p);
+public boolean reserver(String draftId, ProduitDTO p, int q) {
+	return new Ligne_CommandeService().reserver(draftId, p, q);
+}
+public void liberer(String draftId, ProduitDTO p, int q) {
+	new Ligne_CommandeService().liberer(draftId, p, q);
+}
+public int disponible(ProduitDTO p) {
+	return new Ligne_CommandeService().disponible(p);
+}
+public boolean exists(String draftId,ProduitDTO p) {
+	return new Ligne_CommandeService().exists(draftId,p);
 	
 }
 }
@@ -2,8 +2,8 @@ package controller;
 
 import bo.Produit;
 import java.util.List;
+import java.util.Map;
 
-import dao.ProduitDAO;
 import dto.ProduitDTO;
 import service.ProduitService;
 
@@ -14,35 +14,70 @@ public class ProduitController {
         produitservice.create(produitDTO);
     }
 
+    public int ajouterProduits(List<ProduitDTO> produitDTOs) {
+        ProduitService produitservice = new ProduitService();
+        return produitservice.createAll(produitDTOs);
+    }
+
     public List<ProduitDTO> getAllProduit() {
         ProduitService produitservice = new ProduitService();
         return produitservice.retreive();
     }
 
+    public List<ProduitDTO> getCatalogue() {
+        ProduitService service = new ProduitService();
+        return service.getCatalogue();
+    }
+
     public List<ProduitDTO> getAllProduits() {
         ProduitService service = new ProduitService();
         return service.getAllProduits();
     }
 
+    public List<ProduitDTO> getProduitsPage(ProduitDTO after, int skip, int limit) {
+        ProduitService service = new ProduitService();
+        return service.getProduitsPage(after, skip, limit);
+    }
+
+    public long countProduits() {
+        ProduitService service = new ProduitService();
+        return service.countProduits();
+    }
+
+    public List<ProduitDTO> getProduitsPage(Map<String, Object> filters, ProduitDTO after, int skip, int limit) {
+        ProduitService service = new ProduitService();
+        return service.getProduitsPage(filters, after, skip, limit);
+    }
+
+    public long countProduits(Map<String, Object> filters) {
+        ProduitService service = new ProduitService();
+        return service.countProduits(filters);
+    }
+
     public List<ProduitDTO> searchProduits(String searchTerm) {
         ProduitService service = new ProduitService();
         return service.searchProduits(searchTerm);
     }
 
-    public void decrease_stock() {
-        ProduitService produitservice = new ProduitService();
-        produitservice.decrease_stock();
+    public List<ProduitDTO> suggestProduits(String searchTerm, int limit) {
+        ProduitService service = new ProduitService();
+        return service.suggestProduits(searchTerm, limit);
     }
 
+    /**
+     * Create a new product. An existing product is changed through modifierProduit,
+     * which writes only the fields the user changed, and the stock as a difference.
+     */
     public void saveProduit(Produit produit) {
-        ProduitDAO dao = new ProduitDAO();
-        if (produit.getId() == 0 || produit.getId() < 1) {
-            // Create new product
-            dao.create(produit);
-        } else {
-            // Update existing product
-            dao.update(produit);
+        if (produit.getId() > 0) {
+            throw new IllegalArgumentException("Product " + produit.getId() + " already exists: use modifierProduit");
         }
+        new ProduitService().create(produit);
+    }
+
+    public boolean modifierProduit(ProduitDTO original, ProduitDTO edited) {
+        ProduitService produitService = new ProduitService();
+        return produitService.update(original, edited);
     }
 
     public boolean deleteProduit(int id) {
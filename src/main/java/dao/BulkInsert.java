@@ -0,0 +1,48 @@
+package dao;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.hibernate.StatelessSession;
+
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Inserts large lists through a StatelessSession, one transaction per chunk.
+ * Statements are grouped into JDBC batches of {@code hibernate.jdbc.batch_size};
+ * a failing chunk is rolled back on its own and the remaining chunks still run.
+ */
+final class BulkInsert {
+
+	/** Rows committed per transaction when the caller does not choose. */
+	static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	private BulkInsert() {
+	}
+
+	/**
+	 * @return the number of items whose chunk was committed
+	 */
+	static <E> int insertAll(String name, List<E> items, int chunkSize, BiConsumer<StatelessSession, E> insert) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		int inserted = 0;
+		for (int from = 0; from < items.size(); from += chunkSize) {
+			List<E> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+			try {
+				TxTemplate.stateless(name, session -> {
+					for (E item : chunk) {
+						insert.accept(session, item);
+					}
+					return null;
+				});
+				inserted += chunk.size();
+			} catch (PersistenceException e) {
+				System.err.println(name + ": chunk of " + chunk.size() + " rows starting at " + from + " rolled back");
+				e.printStackTrace();
+			}
+		}
+		return inserted;
+	}
+}
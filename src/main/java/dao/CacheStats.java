@@ -0,0 +1,58 @@
+package dao;
+
+/**
+ * Point-in-time counters of one second-level cache region, since startup.
+ */
+public class CacheStats {
+
+	private final String region;
+	private final long hitCount;
+	private final long missCount;
+	private final long putCount;
+	private final long elementCount;
+
+	public CacheStats(String region, long hitCount, long missCount, long putCount, long elementCount) {
+		this.region = region;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.putCount = putCount;
+		this.elementCount = elementCount;
+	}
+
+	/** Region name, i.e. the cached entity class. */
+	public String getRegion() {
+		return region;
+	}
+
+	/** Lookups answered by the cache. */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/** Lookups that went to the database. */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/** Entries stored in the cache. */
+	public long getPutCount() {
+		return putCount;
+	}
+
+	/** Entries currently held in memory, or a negative value if the provider does not tell. */
+	public long getElementCount() {
+		return elementCount;
+	}
+
+	/** Share of lookups answered by the cache, between 0 and 1. */
+	public double getHitRatio() {
+		long lookups = hitCount + missCount;
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Cache %s [hits=%d, misses=%d, puts=%d, entries=%s, hit ratio=%.1f%%]",
+				region, hitCount, missCount, putCount, elementCount < 0 ? "n/a" : String.valueOf(elementCount), getHitRatio() * 100);
+	}
+}
@@ -1,98 +1,238 @@
 package dao;
 
-import org.hibernate.HibernateException;
-import org.hibernate.Session;
-import org.hibernate.query.Query;
-
 import bo.Client;
-import org.hibernate.Transaction;
+import dto.ClientDTO;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import java.util.List;
 
 public class ClientDAO {
 
-	
-public void create(Client client) {
-	Transaction tx=null;
+	static final String FIND_ALL = "FROM Client";
+	static final String SEARCH_BY_NAME = "FROM Client WHERE LOWER(nom) LIKE LOWER(:searchTerm) ORDER BY nom";
+	static final String SEARCH = "FROM Client WHERE LOWER(nom) LIKE LOWER(:term) OR LOWER(adresse) LIKE LOWER(:term) ORDER BY nom";
+	static final String COUNT = "SELECT COUNT(c) FROM Client c";
+	// Copies the name of a client onto its commands (Commande.clientNom); rows already up to date are not written
+	static final String RENAME_COMMANDES = "UPDATE Commande c SET c.clientNom = :clientNom"
+			+ " WHERE c.client.id = :id AND (c.clientNom IS NULL OR c.clientNom <> :clientNom)";
+
+	// List screens read DTOs straight from the columns: no entity, no persistence context
+	static final String SELECT_DTO = "SELECT new dto.ClientDTO(c.id, c.nom, c.capital, c.adresse) FROM Client c";
+	static final String FIND_ALL_DTO = SELECT_DTO + " ORDER BY c.id";
+	static final String SEARCH_DTO = SELECT_DTO + " WHERE LOWER(c.nom) LIKE LOWER(:term) OR LOWER(c.adresse) LIKE LOWER(:term) ORDER BY c.nom";
+	static final String PAGE_FIRST = SELECT_DTO + " ORDER BY c.id";
+	static final String PAGE_AFTER = SELECT_DTO + " WHERE c.id > :afterId ORDER BY c.id";
+
+	// Fields the list screen can filter on (see getClientDTOs(CriteriaFilter, ...))
+	public static final CriteriaFilter.Field<Client, String> NOM = CriteriaFilter.attribute("nom");
+	public static final CriteriaFilter.Field<Client, String> ADRESSE = CriteriaFilter.attribute("adresse");
+	public static final CriteriaFilter.Field<Client, Double> CAPITAL = CriteriaFilter.attribute("capital");
+
+	/** Queries compiled by {@link HibernateUtil} while the SessionFactory warms up. */
+	static final List<String> WARMUP_QUERIES = List.of(FIND_ALL, SEARCH_BY_NAME, SEARCH, COUNT, FIND_ALL_DTO, SEARCH_DTO, PAGE_FIRST, PAGE_AFTER);
+
+	/**
+	 * Insert a client.
+	 * @return false if the transaction failed (nothing was saved)
+	 */
+	public boolean create(Client client) {
 		try {
-		Session session=HibernateUtil.getSessionFactory().openSession();
-		tx=session.beginTransaction();
-		session.save(client);
-		tx.commit();
-		session.close();
+			TxTemplate.write("ClientDAO.create", session -> {
+				session.save(client);
+				return null;
+			});
+			return true;
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Insert many clients in JDBC batches, committing every {@code chunkSize} rows.
+	 * @return the number of clients inserted
+	 */
+	public int createAll(List<Client> clients, int chunkSize) {
+		return BulkInsert.insertAll("ClientDAO.createAll", clients, chunkSize, (session, client) -> session.insert(client));
 	}
-	catch(HibernateException e) {
-		tx.rollback();
-		e.printStackTrace();
+
+	public int createAll(List<Client> clients) {
+		return createAll(clients, BulkInsert.DEFAULT_CHUNK_SIZE);
 	}
-}
 
-public void update(Client client) {
-Transaction tx=null;
-	try {
-	Session session=HibernateUtil.getSessionFactory().openSession();
-	tx=session.beginTransaction();
-	session.saveOrUpdate(client);
-	tx.commit();
-	session.close();
-}
-catch(HibernateException e) {
-	tx.rollback();
-	e.printStackTrace();
-}
-}
-public boolean delete(Client client) {
-Transaction tx=null;
-	try {
-	Session session=HibernateUtil.getSessionFactory().openSession();
-	tx=session.beginTransaction();
-	session.delete(client);
-	tx.commit();
-	session.close();
-	return true;
-}
-catch(HibernateException e) {
-	tx.rollback();
-	return false;
-}
-}
-public Client findById(int id) {
-		Transaction tx=null;
-		Client C=null;
-			try {
-			Session session=HibernateUtil.getSessionFactory().openSession();
-			tx=session.beginTransaction();
-			C=session.find(Client.class, id);
-			tx.commit();
-			session.close();
-			return C;
-			
-			
-		}
-		catch(HibernateException e) {
-			tx.rollback();
+	/**
+	 * Update client, and the copy of its name on its commands, in one transaction.
+	 * The bulk UPDATE only evicts the cached commands (none are cached); the client
+	 * itself goes through the session, so its cache entry is updated.
+	 * @return false if the transaction failed (nothing was changed)
+	 */
+	public boolean update(Client client) {
+		try {
+			TxTemplate.write("ClientDAO.update", session -> {
+				session.saveOrUpdate(client);
+				session.createMutationQuery(RENAME_COMMANDES)
+						.setParameter("clientNom", CommandeDAO.clientNom(client.getNom()))
+						.setParameter("id", client.getId())
+						.executeUpdate();
+				return null;
+			});
+			return true;
+		} catch (PersistenceException e) {
 			e.printStackTrace();
-			return C;
-		
+			return false;
 		}
+	}
 
+	public boolean delete(Client client) {
+		if (client == null) {
+			return false;
+		}
+		try {
+			TxTemplate.write("ClientDAO.delete", session -> {
+				session.delete(client);
+				return null;
+			});
+			return true;
+		} catch (PersistenceException e) {
+			return false;
+		}
+	}
+
+	public Client findById(int id) {
+		try {
+			return TxTemplate.read("ClientDAO.findById", session -> session.find(Client.class, id));
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 
 	/**
 	 * Get all clients from database.
 	 */
 	public List<Client> getAllClients() {
-		Transaction tx = null;
-		List<Client> clients = null;
 		try {
-			Session session = HibernateUtil.getSessionFactory().openSession();
-			tx = session.beginTransaction();
-			Query<Client> query = session.createQuery("FROM Client", Client.class);
-			clients = query.list();
-			tx.commit();
-			session.close();
-			return clients;
-		} catch (HibernateException e) {
-			if (tx != null) tx.rollback();
+			return TxTemplate.read("ClientDAO.getAllClients", session ->
+				session.createQuery(FIND_ALL, Client.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Get one page of clients ordered by id, starting after the given id (keyset pagination).
+	 * @param afterId id of the last client of the previous page, or null for the first page
+	 * @param skip    rows to skip past the cursor, to jump ahead without walking every page
+	 */
+	public List<ClientDTO> getClientsPage(Integer afterId, int skip, int limit) {
+		try {
+			return TxTemplate.read("ClientDAO.getClientsPage", session -> {
+				var query = afterId == null
+					? session.createQuery(PAGE_FIRST, ClientDTO.class)
+					: session.createQuery(PAGE_AFTER, ClientDTO.class).setParameter("afterId", afterId);
+				return query.setFirstResult(skip).setMaxResults(limit).list();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	public List<ClientDTO> getClientsPage(Integer afterId, int limit) {
+		return getClientsPage(afterId, 0, limit);
+	}
+
+	/**
+	 * Get one page of the clients matching a filter, ordered by id, starting after the given id.
+	 * The filter is evaluated by the database.
+	 */
+	public List<ClientDTO> getClientDTOs(CriteriaFilter<Client> filter, Integer afterId, int skip, int limit) {
+		try {
+			return TxTemplate.search("ClientDAO.getClientDTOs", List.of(), session -> {
+				CriteriaBuilder cb = session.getCriteriaBuilder();
+				CriteriaQuery<ClientDTO> query = cb.createQuery(ClientDTO.class);
+				Root<Client> c = query.from(Client.class);
+				query.select(cb.construct(ClientDTO.class, c.get("id"), c.get("nom"), c.get("capital"), c.get("adresse")));
+				List<Predicate> where = filter.toPredicates(cb, query, c);
+				if (afterId != null) {
+					where.add(cb.greaterThan(c.get("id"), afterId));
+				}
+				query.where(where.toArray(new Predicate[0])).orderBy(cb.asc(c.get("id")));
+				return session.createQuery(query).setFirstResult(skip).setMaxResults(limit).list();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Count the clients matching a filter.
+	 */
+	public long countClients(CriteriaFilter<Client> filter) {
+		try {
+			return TxTemplate.search("ClientDAO.countClients", 0L, session -> {
+				CriteriaBuilder cb = session.getCriteriaBuilder();
+				CriteriaQuery<Long> query = cb.createQuery(Long.class);
+				Root<Client> c = query.from(Client.class);
+				query.select(cb.count(c)).where(filter.toPredicates(cb, query, c).toArray(new Predicate[0]));
+				return session.createQuery(query).getSingleResult();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * Count all clients.
+	 */
+	public long countClients() {
+		try {
+			return TxTemplate.read("ClientDAO.countClients", session ->
+				session.createQuery(COUNT, Long.class).getSingleResult());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * Get all clients as DTOs, without loading the entities.
+	 */
+	public List<ClientDTO> getAllClientDTOs() {
+		try {
+			return TxTemplate.read("ClientDAO.getAllClientDTOs", session ->
+				session.createQuery(FIND_ALL_DTO, ClientDTO.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Load every client as a DTO, for an in-memory index. Unlike {@link #getAllClientDTOs()},
+	 * failures are not caught: the caller keeps its previous state instead of an empty list.
+	 */
+	public List<ClientDTO> loadAllClientDTOs() {
+		return TxTemplate.read("ClientDAO.loadAllClientDTOs", session ->
+			session.createQuery(FIND_ALL_DTO, ClientDTO.class).list());
+	}
+
+	/**
+	 * Search clients by name or address, as DTOs, without loading the entities.
+	 */
+	public List<ClientDTO> searchClientDTOs(String searchTerm) {
+		try {
+			return TxTemplate.search("ClientDAO.searchClientDTOs", List.of(), session ->
+				session.createQuery(SEARCH_DTO, ClientDTO.class)
+					.setParameter("term", "%" + searchTerm + "%")
+					.list());
+		} catch (PersistenceException e) {
 			e.printStackTrace();
 			return List.of();
 		}
@@ -102,20 +242,12 @@ public Client findById(int id) {
 	 * Search clients by name containing the search term.
 	 */
 	public List<Client> searchByName(String searchTerm) {
-		Transaction tx = null;
-		List<Client> clients = null;
 		try {
-			Session session = HibernateUtil.getSessionFactory().openSession();
-			tx = session.beginTransaction();
-			String hql = "FROM Client WHERE LOWER(nom) LIKE LOWER(:searchTerm) ORDER BY nom";
-			Query<Client> query = session.createQuery(hql, Client.class);
-			query.setParameter("searchTerm", "%" + searchTerm + "%");
-			clients = query.list();
-			tx.commit();
-			session.close();
-			return clients;
-		} catch (HibernateException e) {
-			if (tx != null) tx.rollback();
+			return TxTemplate.read("ClientDAO.searchByName", session ->
+				session.createQuery(SEARCH_BY_NAME, Client.class)
+					.setParameter("searchTerm", "%" + searchTerm + "%")
+					.list());
+		} catch (PersistenceException e) {
 			e.printStackTrace();
 			return List.of();
 		}
@@ -125,25 +257,17 @@ public Client findById(int id) {
 	 * Search clients by name or address.
 	 */
 	public List<Client> search(String searchTerm) {
-		Transaction tx = null;
-		List<Client> clients = null;
 		try {
-			Session session = HibernateUtil.getSessionFactory().openSession();
-			tx = session.beginTransaction();
-			String hql = "FROM Client WHERE LOWER(nom) LIKE LOWER(:term) OR LOWER(adresse) LIKE LOWER(:term) ORDER BY nom";
-			Query<Client> query = session.createQuery(hql, Client.class);
-			query.setParameter("term", "%" + searchTerm + "%");
-			clients = query.list();
-			tx.commit();
-			session.close();
-			return clients;
-		} catch (HibernateException e) {
-			if (tx != null) tx.rollback();
+			return TxTemplate.read("ClientDAO.search", session ->
+				session.createQuery(SEARCH, Client.class)
+					.setParameter("term", "%" + searchTerm + "%")
+					.list());
+		} catch (PersistenceException e) {
 			e.printStackTrace();
 			return List.of();
 		}
 	}
-	
+
 	public static void main(String[] args) {
 		System.out.println(new ClientDAO().findById(1));
 	}
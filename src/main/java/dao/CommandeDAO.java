@@ -1,135 +1,476 @@
 package dao;
 
-import org.hibernate.HibernateException;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
-import org.hibernate.query.Query;
+import org.hibernate.graph.GraphSemantic;
 
+import bo.Client;
 import bo.Commande;
 import bo.Ligne_Commande;
+import dto.CommandeDTO;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class CommandeDAO {
-public void create(Commande commande) {
-	Transaction tx=null;
-	try {
-	Session session=HibernateUtil.getSessionFactory().openSession();
-	tx=session.beginTransaction();
-	session.save(commande);
-	if (commande.getLignes() != null) {
-		for(Ligne_Commande l:commande.getLignes()) {
-			l.setCommande(commande);
-			session.saveOrUpdate(l);
-		}
-	}
-	
-	tx.commit();
-	session.close();
-}
-catch(HibernateException e) {
-	tx.rollback();
-	e.printStackTrace();
-}
-	
-}
 
-/**
- * Get all commands from database.
- */
-public List<Commande> getAllCommandes() {
-	Transaction tx = null;
-	List<Commande> commandes = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		Query<Commande> query = session.createQuery("FROM Commande ORDER BY datecmd DESC", Commande.class);
-		commandes = query.list();
-		tx.commit();
-		session.close();
-		return commandes;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return List.of();
+	// The client is lazy: list queries fetch it in the same SELECT instead of one query per client
+	static final String FIND_ALL = "FROM Commande c LEFT JOIN FETCH c.client ORDER BY c.datecmd DESC";
+	// Searches by client name filter on the copy of the name (clientNom); commands not filled in yet by
+	// service.ClientNomBackfill fall back to the name of the joined client. The term is lowercased in Java, like the column
+	static final String SEARCH = "FROM Commande c JOIN FETCH c.client cl WHERE COALESCE(c.clientNom, LOWER(cl.nom)) LIKE :term ORDER BY c.datecmd DESC";
+	static final String COUNT = "SELECT COUNT(c) FROM Commande c";
+
+	// List screens read DTOs straight from the columns: no entity, no persistence context
+	static final String SELECT_DTO = "SELECT new dto.CommandeDTO(c.idcmd, c.datecmd, c.total, c.version, cl.id, cl.nom, cl.capital, cl.adresse)"
+			+ " FROM Commande c LEFT JOIN c.client cl";
+	static final String FIND_ALL_DTO = SELECT_DTO + " ORDER BY c.datecmd DESC";
+	static final String SEARCH_DTO = SELECT_DTO + " WHERE COALESCE(c.clientNom, LOWER(cl.nom)) LIKE :term ORDER BY c.datecmd DESC";
+	// Goes through the index of the client foreign key instead of scanning client names
+	static final String BY_CLIENTS_DTO = SELECT_DTO + " WHERE c.client.id IN :clientIds ORDER BY c.datecmd DESC";
+	// Newest first; null dates sort last (MySQL descending order); the id breaks ties
+	static final String PAGE_FIRST = SELECT_DTO + " ORDER BY c.datecmd DESC, c.idcmd DESC";
+	static final String PAGE_AFTER = SELECT_DTO + " WHERE c.datecmd < :afterDate OR (c.datecmd = :afterDate AND c.idcmd < :afterId) OR c.datecmd IS NULL"
+			+ " ORDER BY c.datecmd DESC, c.idcmd DESC";
+	static final String PAGE_AFTER_NULL = SELECT_DTO + " WHERE c.datecmd IS NULL AND c.idcmd < :afterId ORDER BY c.datecmd DESC, c.idcmd DESC";
+
+	// Lines saved before their price was recorded, and their price from the current one of the product
+	// (a line without a product has no price: it is not picked again at every start)
+	static final String LIGNES_WITHOUT_PRIX = "SELECT l.idligne FROM Ligne_Commande l"
+			+ " WHERE l.prix_unitaire IS NULL AND l.produit IS NOT NULL AND l.idligne > :afterId ORDER BY l.idligne";
+	static final String FILL_PRIX = "UPDATE Ligne_Commande l"
+			+ " SET l.prix_unitaire = (SELECT p.prix FROM Produit p WHERE p.id = l.produit.id),"
+			+ " l.sous_total = l.quantite * (SELECT p.prix FROM Produit p WHERE p.id = l.produit.id)"
+			+ " WHERE l.idligne IN :ids";
+
+	// Commands saved before clientNom existed, and their clientNom from the current name of the client
+	// (a client without a name leaves it null: those commands are not picked again at every start)
+	static final String COMMANDES_WITHOUT_CLIENT_NOM = "SELECT c.idcmd FROM Commande c JOIN c.client cl"
+			+ " WHERE c.clientNom IS NULL AND cl.nom IS NOT NULL AND c.idcmd > :afterId ORDER BY c.idcmd";
+	static final String FILL_CLIENT_NOM = "UPDATE Commande c"
+			+ " SET c.clientNom = (SELECT LOWER(cl.nom) FROM Client cl WHERE cl.id = c.client.id)"
+			+ " WHERE c.idcmd IN :ids";
+
+	/** Queries compiled by {@link HibernateUtil} while the SessionFactory warms up. */
+	static final List<String> WARMUP_QUERIES = List.of(FIND_ALL, SEARCH, COUNT,
+			FIND_ALL_DTO, SEARCH_DTO, BY_CLIENTS_DTO, PAGE_FIRST, PAGE_AFTER, PAGE_AFTER_NULL, LIGNES_WITHOUT_PRIX, COMMANDES_WITHOUT_CLIENT_NOM);
+
+	/**
+	 * Save a new command with its lines and take the ordered quantities out of stock,
+	 * all in one transaction: products in row mode are decremented in place, products
+	 * in ledger mode get one stock movement per line. Each line records the price its
+	 * product has in this transaction, and its subtotal.
+	 * @throws exception.InsufficientStockException if a product lacks stock; nothing is saved
+	 * @throws jakarta.persistence.PersistenceException if the transaction failed; nothing is saved
+	 */
+	public void create(Commande commande) {
+		// Not caught: the caller commits the order's stock reservations only once the insert has committed
+		TxTemplate.write("CommandeDAO.create", session -> {
+			Map<Integer, Integer> quantities = orderedQuantities(commande);
+			priceLignes(commande, ProduitDAO.prix(session, quantities.keySet()));
+			Set<Integer> ledgerProduits = StockMovementDAO.ledgerProduits(session, quantities.keySet());
+			Map<Integer, Integer> rowQuantities = new HashMap<>(quantities);
+			rowQuantities.keySet().removeAll(ledgerProduits);
+			ProduitDAO.decrementStock(session, rowQuantities);
+			commande.setClientNom(clientNom(session, commande));
+			session.save(commande);
+			if (commande.getLignes() != null) {
+				for (Ligne_Commande l : commande.getLignes()) {
+					l.setCommande(commande);
+					session.saveOrUpdate(l);
+				}
+			}
+			StockMovementDAO.recordSales(session, commande, ledgerProduits);
+			return null;
+		});
 	}
-}
 
-/**
- * Search commands by client name.
- */
-public List<Commande> search(String searchTerm) {
-	Transaction tx = null;
-	List<Commande> commandes = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		String hql = "FROM Commande c WHERE LOWER(c.client.nom) LIKE LOWER(:term) ORDER BY c.datecmd DESC";
-		Query<Commande> query = session.createQuery(hql, Commande.class);
-		query.setParameter("term", "%" + searchTerm + "%");
-		commandes = query.list();
-		tx.commit();
-		session.close();
-		return commandes;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return List.of();
+	/**
+	 * Set the unit price and subtotal of every line whose product has a known price.
+	 */
+	private static void priceLignes(Commande commande, Map<Integer, Float> prix) {
+		if (commande.getLignes() == null) {
+			return;
+		}
+		for (Ligne_Commande l : commande.getLignes()) {
+			Float unitPrix = l.getProduit() == null ? null : prix.get(l.getProduit().getId());
+			if (unitPrix != null) {
+				l.setPrix_unitaire(unitPrix);
+				l.setSous_total(unitPrix * l.getQuantite());
+			}
+		}
 	}
-}
 
-/**
- * Find command by ID.
- */
-public Commande findById(int id) {
-	Transaction tx = null;
-	Commande commande = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		commande = session.find(Commande.class, id);
-		tx.commit();
-		session.close();
-		return commande;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return null;
+	/**
+	 * Total quantity ordered per product id.
+	 */
+	private static Map<Integer, Integer> orderedQuantities(Commande commande) {
+		Map<Integer, Integer> quantities = new HashMap<>();
+		if (commande.getLignes() != null) {
+			for (Ligne_Commande l : commande.getLignes()) {
+				if (l.getProduit() != null) {
+					quantities.merge(l.getProduit().getId(), l.getQuantite(), Integer::sum);
+				}
+			}
+		}
+		return quantities;
 	}
-}
 
-/**
- * Update command.
- */
-public void update(Commande commande) {
-	Transaction tx = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		session.merge(commande);
-		tx.commit();
-		session.close();
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
+	/**
+	 * Insert many commands and their lines in JDBC batches, committing every {@code chunkSize} commands.
+	 * @return the number of commands inserted
+	 */
+	public int createAll(List<Commande> commandes, int chunkSize) {
+		// Imports usually hold many commands per client and product: read each name and price once
+		Map<Integer, String> clientNoms = new HashMap<>();
+		Map<Integer, Float> prix = new HashMap<>();
+		return BulkInsert.insertAll("CommandeDAO.createAll", commandes, chunkSize, (session, commande) -> {
+			Integer clientId = clientId(commande);
+			if (clientId != null) {
+				commande.setClientNom(clientNoms.computeIfAbsent(clientId, id -> clientNom(session.get(Client.class, id))));
+			}
+			Set<Integer> unpriced = new HashSet<>(orderedQuantities(commande).keySet());
+			unpriced.removeAll(prix.keySet());
+			prix.putAll(ProduitDAO.prix(session, unpriced));
+			priceLignes(commande, prix);
+			session.insert(commande);
+			if (commande.getLignes() != null) {
+				for (Ligne_Commande l : commande.getLignes()) {
+					l.setCommande(commande);
+					session.insert(l);
+				}
+			}
+		});
 	}
-}
 
-/**
- * Delete command.
- */
-public boolean delete(Commande commande) {
-	Transaction tx = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		session.remove(commande);
-		tx.commit();
-		session.close();
-		return true;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return false;
+	public int createAll(List<Commande> commandes) {
+		return createAll(commandes, BulkInsert.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Get all commands from database.
+	 */
+	public List<Commande> getAllCommandes() {
+		try {
+			return TxTemplate.read("CommandeDAO.getAllCommandes", session ->
+				session.createQuery(FIND_ALL, Commande.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Get one page of commands, newest first, starting after the given command (keyset pagination).
+	 * @param afterDate date of the last command of the previous page (may be null)
+	 * @param afterId   id of the last command of the previous page, or null for the first page
+	 * @param skip      rows to skip past the cursor, to jump ahead without walking every page
+	 */
+	public List<CommandeDTO> getCommandesPage(Date afterDate, Integer afterId, int skip, int limit) {
+		try {
+			return TxTemplate.read("CommandeDAO.getCommandesPage", session -> {
+				var query = afterId == null
+					? session.createQuery(PAGE_FIRST, CommandeDTO.class)
+					: afterDate == null
+						? session.createQuery(PAGE_AFTER_NULL, CommandeDTO.class).setParameter("afterId", afterId)
+						: session.createQuery(PAGE_AFTER, CommandeDTO.class)
+							.setParameter("afterDate", afterDate)
+							.setParameter("afterId", afterId);
+				return query.setFirstResult(skip).setMaxResults(limit).list();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	public List<CommandeDTO> getCommandesPage(Date afterDate, Integer afterId, int limit) {
+		return getCommandesPage(afterDate, afterId, 0, limit);
+	}
+
+	// Fields the list screen can filter on (see getCommandeDTOs(CriteriaFilter, ...))
+	public static final CriteriaFilter.Field<Commande, Date> DATECMD = CriteriaFilter.attribute("datecmd");
+	/** The clientNom of the command or, until it is filled in, the name of its client. */
+	public static final CriteriaFilter.Field<Commande, String> CLIENT_NOM = (cb, query, c) ->
+		cb.coalesce(c.<String>get("clientNom"), cb.lower(client(c).<String>get("nom")));
+
+	/**
+	 * Get one page of the commands matching a filter, newest first, starting after the given
+	 * command (same order and cursor as {@link #getCommandesPage(Date, Integer, int, int)}).
+	 * The filter is evaluated by the database.
+	 */
+	public List<CommandeDTO> getCommandeDTOs(CriteriaFilter<Commande> filter, Date afterDate, Integer afterId, int skip, int limit) {
+		try {
+			return TxTemplate.search("CommandeDAO.getCommandeDTOs", List.of(), session -> {
+				CriteriaBuilder cb = session.getCriteriaBuilder();
+				CriteriaQuery<CommandeDTO> query = cb.createQuery(CommandeDTO.class);
+				Root<Commande> c = query.from(Commande.class);
+				Join<Commande, Client> cl = client(c);
+				query.select(cb.construct(CommandeDTO.class, c.get("idcmd"), c.get("datecmd"), c.get("total"), c.get("version"),
+						cl.get("id"), cl.get("nom"), cl.get("capital"), cl.get("adresse")));
+				List<Predicate> where = filter.toPredicates(cb, query, c);
+				if (afterId != null) {
+					Expression<Date> datecmd = c.get("datecmd");
+					where.add(afterDate == null
+						? cb.and(cb.isNull(datecmd), cb.lessThan(c.get("idcmd"), afterId))
+						: cb.or(cb.lessThan(datecmd, afterDate),
+							cb.and(cb.equal(datecmd, afterDate), cb.lessThan(c.get("idcmd"), afterId)),
+							cb.isNull(datecmd)));
+				}
+				query.where(where.toArray(new Predicate[0])).orderBy(cb.desc(c.get("datecmd")), cb.desc(c.get("idcmd")));
+				return session.createQuery(query).setFirstResult(skip).setMaxResults(limit).list();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Count the commands matching a filter.
+	 */
+	public long countCommandes(CriteriaFilter<Commande> filter) {
+		try {
+			return TxTemplate.search("CommandeDAO.countCommandes", 0L, session -> {
+				CriteriaBuilder cb = session.getCriteriaBuilder();
+				CriteriaQuery<Long> query = cb.createQuery(Long.class);
+				Root<Commande> c = query.from(Commande.class);
+				query.select(cb.count(c)).where(filter.toPredicates(cb, query, c).toArray(new Predicate[0]));
+				return session.createQuery(query).getSingleResult();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * The client of the command, LEFT JOINed once per query (reused by the select and the filters).
+	 */
+	@SuppressWarnings("unchecked")
+	private static Join<Commande, Client> client(Root<Commande> c) {
+		for (Join<Commande, ?> join : c.getJoins()) {
+			if (join.getAttribute().getName().equals("client")) {
+				return (Join<Commande, Client>) join;
+			}
+		}
+		return c.join("client", JoinType.LEFT);
+	}
+
+	/**
+	 * The value of {@link Commande#getClientNom()} for a client name: the name in lower case.
+	 */
+	static String clientNom(String nom) {
+		return nom == null ? null : nom.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * The clientNom of a command, from the current name of its client. The client is
+	 * often a bare reference carrying only its id, so the name is read through the
+	 * session (usually a second-level cache hit).
+	 */
+	private static String clientNom(Session session, Commande commande) {
+		Integer clientId = clientId(commande);
+		return clientId == null ? null : clientNom(session.get(Client.class, clientId));
+	}
+
+	private static String clientNom(Client client) {
+		return client == null ? null : clientNom(client.getNom());
+	}
+
+	private static Integer clientId(Commande commande) {
+		return commande.getClient() == null ? null : commande.getClient().getId();
+	}
+
+	/**
+	 * Count all commands.
+	 */
+	public long countCommandes() {
+		try {
+			return TxTemplate.read("CommandeDAO.countCommandes", session ->
+				session.createQuery(COUNT, Long.class).getSingleResult());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * Get all commands with their client as DTOs, without loading the entities.
+	 */
+	public List<CommandeDTO> getAllCommandeDTOs() {
+		try {
+			return TxTemplate.read("CommandeDAO.getAllCommandeDTOs", session ->
+				session.createQuery(FIND_ALL_DTO, CommandeDTO.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Search commands by client name, as DTOs, without loading the entities.
+	 */
+	public List<CommandeDTO> searchCommandeDTOs(String searchTerm) {
+		try {
+			return TxTemplate.search("CommandeDAO.searchCommandeDTOs", List.of(), session ->
+				session.createQuery(SEARCH_DTO, CommandeDTO.class)
+					.setParameter("term", "%" + clientNom(searchTerm) + "%")
+					.list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Get the commands of the given clients as DTOs, newest first.
+	 */
+	public List<CommandeDTO> getCommandeDTOsByClients(Collection<Integer> clientIds) {
+		if (clientIds.isEmpty()) {
+			return List.of();
+		}
+		try {
+			return TxTemplate.search("CommandeDAO.getCommandeDTOsByClients", List.of(), session ->
+				session.createQuery(BY_CLIENTS_DTO, CommandeDTO.class)
+					.setParameter("clientIds", clientIds)
+					.list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Fill the unit price and subtotal of the lines saved before they were recorded,
+	 * from the current price of their product: at most {@code max} lines with an id
+	 * above {@code afterId}, in one short transaction.
+	 * @return the id of the last line of the chunk, or -1 if no line is left
+	 */
+	public int fillLignePrix(int afterId, int max) {
+		return TxTemplate.write("CommandeDAO.fillLignePrix", session -> {
+			List<Integer> ids = session.createQuery(LIGNES_WITHOUT_PRIX, Integer.class)
+					.setParameter("afterId", afterId)
+					.setMaxResults(max)
+					.list();
+			if (ids.isEmpty()) {
+				return -1;
+			}
+			session.createMutationQuery(FILL_PRIX).setParameter("ids", ids).executeUpdate();
+			return ids.get(ids.size() - 1);
+		});
+	}
+
+	/**
+	 * Fill the clientNom of the commands saved before it was recorded, from the current
+	 * name of their client: at most {@code max} commands with an id above {@code afterId},
+	 * in one short transaction.
+	 * @return the id of the last command of the chunk, or -1 if no command is left
+	 */
+	public int fillClientNom(int afterId, int max) {
+		return TxTemplate.write("CommandeDAO.fillClientNom", session -> {
+			List<Integer> ids = session.createQuery(COMMANDES_WITHOUT_CLIENT_NOM, Integer.class)
+					.setParameter("afterId", afterId)
+					.setMaxResults(max)
+					.list();
+			if (ids.isEmpty()) {
+				return -1;
+			}
+			session.createMutationQuery(FILL_CLIENT_NOM).setParameter("ids", ids).executeUpdate();
+			return ids.get(ids.size() - 1);
+		});
+	}
+
+	/**
+	 * Search commands by client name.
+	 */
+	public List<Commande> search(String searchTerm) {
+		try {
+			return TxTemplate.read("CommandeDAO.search", session ->
+				session.createQuery(SEARCH, Commande.class)
+					.setParameter("term", "%" + clientNom(searchTerm) + "%")
+					.list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Find command by ID, with its client.
+	 */
+	public Commande findById(int id) {
+		try {
+			return TxTemplate.read("CommandeDAO.findById", session -> session.find(Commande.class, id,
+				Map.of(GraphSemantic.FETCH.getJakartaHintName(), session.getEntityGraph(Commande.GRAPH_CLIENT))));
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Apply changes to the current state of a command, in one transaction.
+	 * The command is re-read, changed, and written back with a version check: if
+	 * another transaction wrote it meanwhile, the commit fails with an optimistic
+	 * lock exception (not caught here, so the caller can retry).
+	 * @return false if the command does not exist
+	 */
+	public boolean update(int id, Consumer<Commande> changes) {
+		return TxTemplate.write("CommandeDAO.update", session -> {
+			Commande commande = session.find(Commande.class, id);
+			if (commande == null) {
+				return false;
+			}
+			changes.accept(commande);
+			commande.setClientNom(clientNom(session, commande));
+			return true;
+		});
+	}
+
+	/**
+	 * Update command.
+	 */
+	public void update(Commande commande) {
+		try {
+			TxTemplate.write("CommandeDAO.update", session -> {
+				commande.setClientNom(clientNom(session, commande));
+				return session.merge(commande);
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Delete command.
+	 */
+	public boolean delete(Commande commande) {
+		if (commande == null) {
+			return false;
+		}
+		try {
+			TxTemplate.write("CommandeDAO.delete", session -> {
+				session.remove(commande);
+				return null;
+			});
+			return true;
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return false;
+		}
 	}
-}
 }
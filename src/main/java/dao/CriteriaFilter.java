@@ -0,0 +1,134 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import jakarta.persistence.criteria.AbstractQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Conditions on one entity, turned into the WHERE clause of a JPA Criteria query.
+ * <p>
+ * Each method adds one condition, AND-ed with the others, and returns the filter
+ * so calls can be chained. Null bounds and blank terms are ignored, so a screen
+ * can pass its optional filters straight through. Values are never written into
+ * the SQL: Hibernate binds every criteria value as a JDBC parameter, and range
+ * conditions compare the column itself, so they can use its index.
+ * <p>
+ * The filterable {@link Field}s are declared by the DAO of the entity, which also
+ * runs the query (see e.g. {@link ClientDAO#getClientDTOs(CriteriaFilter, Integer, int, int)}).
+ */
+public final class CriteriaFilter<E> {
+
+	/**
+	 * A value of the entity a condition can test: an attribute, an attribute of a
+	 * joined entity, or a computed expression.
+	 */
+	@FunctionalInterface
+	public interface Field<E, V> {
+		Expression<V> resolve(CriteriaBuilder cb, AbstractQuery<?> query, Root<E> root);
+	}
+
+	@FunctionalInterface
+	private interface Condition<E> {
+		Predicate toPredicate(CriteriaBuilder cb, AbstractQuery<?> query, Root<E> root);
+	}
+
+	private final List<Condition<E>> conditions = new ArrayList<>();
+
+	/**
+	 * Field of a plain attribute of the entity.
+	 */
+	public static <E, V> Field<E, V> attribute(String name) {
+		return (cb, query, root) -> root.get(name);
+	}
+
+	/**
+	 * Field greater than or equal to {@code min}; ignored if {@code min} is null.
+	 */
+	public <V extends Comparable<? super V>> CriteriaFilter<E> atLeast(Field<E, V> field, V min) {
+		if (min != null) {
+			conditions.add((cb, query, root) -> cb.greaterThanOrEqualTo(field.resolve(cb, query, root), min));
+		}
+		return this;
+	}
+
+	/**
+	 * Field less than or equal to {@code max}; ignored if {@code max} is null.
+	 */
+	public <V extends Comparable<? super V>> CriteriaFilter<E> atMost(Field<E, V> field, V max) {
+		if (max != null) {
+			conditions.add((cb, query, root) -> cb.lessThanOrEqualTo(field.resolve(cb, query, root), max));
+		}
+		return this;
+	}
+
+	/**
+	 * Field strictly less than {@code bound}; ignored if {@code bound} is null.
+	 */
+	public <V extends Comparable<? super V>> CriteriaFilter<E> lessThan(Field<E, V> field, V bound) {
+		if (bound != null) {
+			conditions.add((cb, query, root) -> cb.lessThan(field.resolve(cb, query, root), bound));
+		}
+		return this;
+	}
+
+	/**
+	 * Field between {@code min} and {@code max} included; a null bound leaves that side open.
+	 */
+	public <V extends Comparable<? super V>> CriteriaFilter<E> between(Field<E, V> field, V min, V max) {
+		return atLeast(field, min).atMost(field, max);
+	}
+
+	/**
+	 * One of the fields contains the term, ignoring case; ignored if the term is blank.
+	 */
+	@SafeVarargs
+	public final CriteriaFilter<E> contains(String term, Field<E, String>... fields) {
+		if (term != null && !term.isBlank() && fields.length > 0) {
+			String pattern = "%" + escapeLike(term.trim().toLowerCase(Locale.ROOT)) + "%";
+			conditions.add((cb, query, root) -> {
+				Predicate[] any = new Predicate[fields.length];
+				for (int i = 0; i < fields.length; i++) {
+					any[i] = cb.like(cb.lower(fields[i].resolve(cb, query, root)), pattern, '\\');
+				}
+				return cb.or(any);
+			});
+		}
+		return this;
+	}
+
+	/**
+	 * Add all the conditions of another filter on the same entity.
+	 */
+	public CriteriaFilter<E> and(CriteriaFilter<E> other) {
+		conditions.addAll(other.conditions);
+		return this;
+	}
+
+	/**
+	 * True if the filter has no condition (it matches every row).
+	 */
+	public boolean isEmpty() {
+		return conditions.isEmpty();
+	}
+
+	/**
+	 * The conditions of the filter, for the given query root.
+	 */
+	public List<Predicate> toPredicates(CriteriaBuilder cb, AbstractQuery<?> query, Root<E> root) {
+		List<Predicate> predicates = new ArrayList<>(conditions.size());
+		for (Condition<E> condition : conditions) {
+			predicates.add(condition.toPredicate(cb, query, root));
+		}
+		return predicates;
+	}
+
+	private static String escapeLike(String term) {
+		return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
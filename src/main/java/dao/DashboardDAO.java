@@ -0,0 +1,104 @@
+package dao;
+
+import java.util.List;
+
+
+import jakarta.persistence.PersistenceException;
+
+import dto.ClientDTO;
+import dto.ClientSegmentsDTO;
+import dto.DashboardStatsDTO;
+import dto.ProduitDTO;
+
+/**
+ * Aggregates behind the dashboard, computed in SQL so that only the figures
+ * (never the rows) leave the database.
+ */
+public class DashboardDAO {
+
+	/** Products with less stock than this are reported as low. */
+	public static final int LOW_STOCK_THRESHOLD = 10;
+	/** Lower bound of the capital of a high value client. */
+	public static final int HIGH_CAPITAL = 50000;
+	/** Lower bound of the capital of a mid value client. */
+	public static final int MID_CAPITAL = 10000;
+
+	static final String COUNT_CLIENTS = "SELECT COUNT(c) FROM Client c";
+	static final String ORDER_TOTALS = "SELECT COUNT(c), COALESCE(SUM(c.total), 0), COALESCE(AVG(c.total), 0) FROM Commande c";
+	static final String PRODUCT_TOTALS = "SELECT COUNT(p), COALESCE(SUM(CASE WHEN " + ProduitDAO.AVAILABLE + " < " + LOW_STOCK_THRESHOLD + " THEN 1 ELSE 0 END), 0) FROM Produit p";
+	// Thresholds are literals so the CASE in SELECT and GROUP BY is the same expression
+	static final String SEGMENT_CASE = "CASE WHEN c.capital >= " + HIGH_CAPITAL + " THEN 2 WHEN c.capital >= " + MID_CAPITAL + " THEN 1 ELSE 0 END";
+	static final String CLIENT_SEGMENTS = "SELECT " + SEGMENT_CASE + ", COUNT(c) FROM Client c GROUP BY " + SEGMENT_CASE;
+	static final String TOP_CLIENTS = ClientDAO.SELECT_DTO + " ORDER BY c.capital DESC, c.id";
+	static final String LOW_STOCK = ProduitDAO.SELECT_DTO + " WHERE " + ProduitDAO.AVAILABLE + " < " + LOW_STOCK_THRESHOLD
+			+ " ORDER BY " + ProduitDAO.AVAILABLE + ", p.id";
+
+	/** Queries compiled by {@link HibernateUtil} while the SessionFactory warms up. */
+	static final List<String> WARMUP_QUERIES = List.of(COUNT_CLIENTS, ORDER_TOTALS, PRODUCT_TOTALS, CLIENT_SEGMENTS, TOP_CLIENTS, LOW_STOCK);
+
+	/**
+	 * Get the counts, the revenue and the average order value.
+	 */
+	public DashboardStatsDTO getStats() {
+		try {
+			return TxTemplate.read("DashboardDAO.getStats", session -> {
+				long clients = session.createQuery(COUNT_CLIENTS, Long.class).getSingleResult();
+				Object[] orders = session.createQuery(ORDER_TOTALS, Object[].class).getSingleResult();
+				Object[] products = session.createQuery(PRODUCT_TOTALS, Object[].class).getSingleResult();
+				return new DashboardStatsDTO(clients,
+						((Number) orders[0]).longValue(),
+						((Number) products[0]).longValue(),
+						((Number) orders[1]).doubleValue(),
+						((Number) orders[2]).doubleValue(),
+						((Number) products[1]).longValue());
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return new DashboardStatsDTO();
+		}
+	}
+
+	/**
+	 * Count the clients of each capital segment.
+	 */
+	public ClientSegmentsDTO getClientSegments() {
+		try {
+			return TxTemplate.read("DashboardDAO.getClientSegments", session -> {
+				long[] counts = new long[3];
+				for (Object[] row : session.createQuery(CLIENT_SEGMENTS, Object[].class).list()) {
+					counts[((Number) row[0]).intValue()] = ((Number) row[1]).longValue();
+				}
+				return new ClientSegmentsDTO(counts[2], counts[1], counts[0]);
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return new ClientSegmentsDTO();
+		}
+	}
+
+	/**
+	 * Get the clients with the highest capital.
+	 */
+	public List<ClientDTO> getTopClients(int limit) {
+		try {
+			return TxTemplate.read("DashboardDAO.getTopClients", session ->
+				session.createQuery(TOP_CLIENTS, ClientDTO.class).setMaxResults(limit).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Get the products with the lowest stock, below {@link #LOW_STOCK_THRESHOLD}.
+	 */
+	public List<ProduitDTO> getLowStockProduits(int limit) {
+		try {
+			return TxTemplate.read("DashboardDAO.getLowStockProduits", session ->
+				session.createQuery(LOW_STOCK, ProduitDTO.class).setMaxResults(limit).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+}
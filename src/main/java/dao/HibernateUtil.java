@@ -1,30 +1,186 @@
 package dao;
 
 
-import org.hibernate.HibernateException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 
 import org.hibernate.*;
+
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Owns the single, process-wide SessionFactory.
+ * The factory is built once, on a background thread, the first time it is
+ * requested (or as soon as {@link #startBootstrap()} is called), after the
+ * schema is migrated ({@link SchemaMigrator}), then warmed up and closed by a
+ * JVM shutdown hook.
+ */
 public class HibernateUtil {
+
+	private static final String CONFIG_RESOURCE = "dao/hibernate.cfg.xml";
+
+	/** Entities kept in the second-level cache; their region is named after the class. */
+	private static final List<Class<?>> CACHED_ENTITIES = List.of(bo.Produit.class, bo.Client.class);
+
+	private static volatile SessionFactory sessionFactory;
+	private static CompletableFuture<SessionFactory> bootstrap;
+	private static boolean shutdownHookRegistered;
+
+/**
+ * Get the shared SessionFactory, waiting for the background bootstrap if it is still running.
+ * Returns null if the factory could not be built; the next call retries.
+ */
 public static SessionFactory getSessionFactory() {
+	SessionFactory factory = sessionFactory;
+	if (factory != null) {
+		return factory;
+	}
 	try {
-	
-		 Configuration config=new Configuration();
-		 return config.configure("dao/hibernate.cfg.xml").buildSessionFactory();
-		
+		return startBootstrap().join();
 	}
-	catch(HibernateException e) {
-		e.printStackTrace();
+	catch(CompletionException e) {
+		e.getCause().printStackTrace();
+		return null;
+	}
+}
+
+/**
+ * Start building the SessionFactory on a background thread, if not already started.
+ * A previous failed attempt is retried.
+ */
+public static synchronized CompletableFuture<SessionFactory> startBootstrap() {
+	if (bootstrap == null || bootstrap.isCompletedExceptionally()) {
+		bootstrap = CompletableFuture.supplyAsync(HibernateUtil::build, task -> {
+			Thread thread = new Thread(task, "hibernate-bootstrap");
+			thread.setDaemon(true);
+			thread.start();
+		});
+	}
+	return bootstrap;
+}
+
+/**
+ * Live statistics of the JDBC connection pool, or null if the factory is not
+ * built yet or does not use {@link PooledConnectionProvider}.
+ */
+public static PoolStats getPoolStats() {
+	SessionFactory factory = sessionFactory;
+	if (factory == null) {
+		return null;
+	}
+	ConnectionProvider provider = factory.unwrap(SessionFactoryImplementor.class)
+			.getServiceRegistry().getService(ConnectionProvider.class);
+	if (provider == null || !provider.isUnwrappableAs(PooledConnectionProvider.class)) {
+		return null;
+	}
+	return provider.unwrap(PooledConnectionProvider.class).getStats();
+}
+
+/**
+ * Hit/miss counters of the second-level cache regions, or null if the factory is
+ * not built yet or statistics are disabled.
+ */
+public static List<CacheStats> getCacheStats() {
+	SessionFactory factory = sessionFactory;
+	if (factory == null) {
 		return null;
 	}
-	
-	
-	
-	
+	Statistics statistics = factory.getStatistics();
+	if (!statistics.isStatisticsEnabled()) {
+		return null;
+	}
+	List<CacheStats> stats = new ArrayList<>();
+	for (Class<?> entity : CACHED_ENTITIES) {
+		CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(entity.getName());
+		if (region != null) {
+			stats.add(new CacheStats(entity.getName(), region.getHitCount(), region.getMissCount(),
+					region.getPutCount(), region.getElementCountInMemory()));
+		}
+	}
+	return stats;
+}
+
+/**
+ * Close the SessionFactory and release its connections.
+ */
+public static synchronized void shutdown() {
+	SessionFactory factory = sessionFactory;
+	sessionFactory = null;
+	bootstrap = null;
+	if (factory != null && factory.isOpen()) {
+		factory.close();
+	}
+}
+
+private static SessionFactory build() {
+	try {
+		Configuration config = new Configuration().configure(CONFIG_RESOURCE);
+		// e.g. -Dhibernate.hbm2ddl.auto=update on a development database
+		String schemaAction = System.getProperty(AvailableSettings.HBM2DDL_AUTO);
+		if (schemaAction != null) {
+			config.setProperty(AvailableSettings.HBM2DDL_AUTO, schemaAction);
+		}
+		SchemaMigrator.migrate(config.getProperties());
+		SessionFactory factory = config.buildSessionFactory();
+		try {
+			IdSequenceSeeder.seed(factory);
+		}
+		catch(PersistenceException e) {
+			// Handing out ids that collide with existing rows is worse than not starting.
+			factory.close();
+			throw e;
+		}
+		warmUp(factory);
+		synchronized (HibernateUtil.class) {
+			sessionFactory = factory;
+			if (!shutdownHookRegistered) {
+				Runtime.getRuntime().addShutdownHook(new Thread(HibernateUtil::shutdown, "hibernate-shutdown"));
+				shutdownHookRegistered = true;
+			}
+		}
+		return factory;
+	}
+	catch(PersistenceException e) {
+		throw new CompletionException(e);
+	}
+}
+
+/**
+ * Compile the DAO queries into the factory's query plan cache and open a first
+ * JDBC connection, so the first user action does not pay for either.
+ */
+private static void warmUp(SessionFactory factory) {
+	List<String> queries = new ArrayList<>();
+	queries.addAll(ClientDAO.WARMUP_QUERIES);
+	queries.addAll(ProduitDAO.WARMUP_QUERIES);
+	queries.addAll(CommandeDAO.WARMUP_QUERIES);
+	queries.addAll(DashboardDAO.WARMUP_QUERIES);
+	queries.addAll(StockMovementDAO.WARMUP_QUERIES);
+
+	try (Session session = factory.openSession()) {
+		// Every warm-up query is a SELECT
+		for (String hql : queries) {
+			session.createSelectionQuery(hql);
+		}
+		session.doWork(connection -> connection.isValid(5));
+	}
+	catch(PersistenceException e) {
+		// Warm-up is best effort: queries are compiled again on first use.
+		e.printStackTrace();
+	}
 }
 
 public static void main(String[] argv) {
-	
+
 	HibernateUtil.getSessionFactory();
 }
 
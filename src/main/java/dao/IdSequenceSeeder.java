@@ -0,0 +1,103 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Keeps the {@code id_sequences} table ahead of the ids already stored.
+ * <p>
+ * Entities used to get their keys from AUTO_INCREMENT columns. They now take
+ * blocks of ids from the pooled table generator, so before the first insert
+ * each sequence row must point past the highest existing id. Runs at every
+ * bootstrap; it only ever moves a sequence forward, so it is safe to repeat and
+ * safe against a second instance starting at the same time (rows are locked).
+ * <p>
+ * Called by {@link HibernateUtil} before the factory is published, so it opens
+ * its own session instead of going through {@link TxTemplate}.
+ */
+final class IdSequenceSeeder {
+
+	/** Same value as the allocationSize of the entities' @TableGenerator. */
+	static final int ALLOCATION_SIZE = 50;
+
+	private static final String TABLE = "id_sequences";
+
+	/** Sequence name, entity table, id column. */
+	private static final List<String[]> SEQUENCES = List.of(
+		new String[] { "client", "Client", "id" },
+		new String[] { "produit", "Produit", "id" },
+		new String[] { "commande", "Commande", "idcmd" },
+		new String[] { "ligne_commande", "Ligne_Commande", "idligne" },
+		new String[] { "stock_movement", "StockMovement", "id" });
+
+	private IdSequenceSeeder() {
+	}
+
+	/**
+	 * Raise every sequence of the entity tables to at least MAX(id) + ALLOCATION_SIZE + 1.
+	 * Rolls back and rethrows if any of them cannot be checked.
+	 */
+	static void seed(SessionFactory factory) {
+		try (Session session = factory.openSession()) {
+			Transaction tx = session.beginTransaction();
+			try {
+				session.doWork(connection -> {
+					for (String[] sequence : SEQUENCES) {
+						seed(connection, sequence[0], sequence[1], sequence[2]);
+					}
+				});
+				tx.commit();
+			}
+			catch(PersistenceException e) {
+				if (tx.isActive()) {
+					tx.rollback();
+				}
+				throw e;
+			}
+		}
+	}
+
+	private static void seed(Connection connection, String name, String table, String idColumn) throws SQLException {
+		long maxId;
+		try (Statement st = connection.createStatement();
+				ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table)) {
+			rs.next();
+			maxId = rs.getLong(1);
+		}
+		// The pooled optimizer hands out ids up to ALLOCATION_SIZE below the stored value
+		long floor = maxId + ALLOCATION_SIZE + 1;
+
+		Long current = null;
+		try (PreparedStatement ps = connection.prepareStatement("SELECT next_val FROM " + TABLE + " WHERE seq_name = ? FOR UPDATE")) {
+			ps.setString(1, name);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next()) {
+					current = rs.getLong(1);
+				}
+			}
+		}
+		if (current == null) {
+			try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + TABLE + " (seq_name, next_val) VALUES (?, ?)")) {
+				ps.setString(1, name);
+				ps.setLong(2, floor);
+				ps.executeUpdate();
+			}
+		} else if (current < floor) {
+			try (PreparedStatement ps = connection.prepareStatement("UPDATE " + TABLE + " SET next_val = ? WHERE seq_name = ?")) {
+				ps.setLong(1, floor);
+				ps.setString(2, name);
+				ps.executeUpdate();
+			}
+		}
+	}
+}
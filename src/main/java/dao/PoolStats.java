@@ -0,0 +1,83 @@
+package dao;
+
+/**
+ * Point-in-time snapshot of the JDBC connection pool.
+ * Acquire latencies are in milliseconds, computed over the most recent acquisitions.
+ */
+public class PoolStats {
+
+	private final int active;
+	private final int idle;
+	private final int waiting;
+	private final int total;
+	private final int maxSize;
+	private final long acquireCount;
+	private final long timeoutCount;
+	private final double acquireP50Millis;
+	private final double acquireP95Millis;
+	private final double acquireP99Millis;
+
+	public PoolStats(int active, int idle, int waiting, int total, int maxSize, long acquireCount, long timeoutCount,
+			double acquireP50Millis, double acquireP95Millis, double acquireP99Millis) {
+		this.active = active;
+		this.idle = idle;
+		this.waiting = waiting;
+		this.total = total;
+		this.maxSize = maxSize;
+		this.acquireCount = acquireCount;
+		this.timeoutCount = timeoutCount;
+		this.acquireP50Millis = acquireP50Millis;
+		this.acquireP95Millis = acquireP95Millis;
+		this.acquireP99Millis = acquireP99Millis;
+	}
+
+	/** Connections currently borrowed by a session. */
+	public int getActive() {
+		return active;
+	}
+
+	/** Open connections waiting in the pool. */
+	public int getIdle() {
+		return idle;
+	}
+
+	/** Threads blocked waiting for a connection. */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getAcquireCount() {
+		return acquireCount;
+	}
+
+	/** Acquisitions that gave up after the connection timeout. */
+	public long getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	public double getAcquireP50Millis() {
+		return acquireP50Millis;
+	}
+
+	public double getAcquireP95Millis() {
+		return acquireP95Millis;
+	}
+
+	public double getAcquireP99Millis() {
+		return acquireP99Millis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Pool [active=%d, idle=%d, waiting=%d, total=%d/%d, acquired=%d, timeouts=%d, acquire p50=%.2fms p95=%.2fms p99=%.2fms]",
+				active, idle, waiting, total, maxSize, acquireCount, timeoutCount, acquireP50Millis, acquireP95Millis, acquireP99Millis);
+	}
+}
@@ -0,0 +1,203 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+/**
+ * Hibernate connection provider backed by a HikariCP pool.
+ * <p>
+ * Connection settings come from the usual {@code hibernate.connection.*} properties.
+ * The pool is tuned with {@code hibernate.pool.*} properties, and any
+ * {@code hibernate.pool.ds.<name>} property is passed to the MySQL driver as-is.
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String MIN_IDLE = "hibernate.pool.min_idle";
+	public static final String MAX_SIZE = "hibernate.pool.max_size";
+	public static final String CONNECTION_TIMEOUT_MS = "hibernate.pool.connection_timeout_ms";
+	public static final String VALIDATION_TIMEOUT_MS = "hibernate.pool.validation_timeout_ms";
+	public static final String IDLE_TIMEOUT_MS = "hibernate.pool.idle_timeout_ms";
+	public static final String MAX_LIFETIME_MS = "hibernate.pool.max_lifetime_ms";
+	public static final String LEAK_DETECTION_MS = "hibernate.pool.leak_detection_ms";
+	public static final String TEST_QUERY = "hibernate.pool.test_query";
+	public static final String DATA_SOURCE_PREFIX = "hibernate.pool.ds.";
+
+	private HikariDataSource dataSource;
+	private final AcquireTracker acquireTracker = new AcquireTracker(1024);
+
+	@Override
+	public void configure(Map<String, Object> settings) {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("order-management-pool");
+		config.setDriverClassName(stringSetting(settings, AvailableSettings.DRIVER, null));
+		config.setJdbcUrl(stringSetting(settings, AvailableSettings.URL, null));
+		config.setUsername(stringSetting(settings, AvailableSettings.USER, null));
+		config.setPassword(stringSetting(settings, AvailableSettings.PASS, null));
+
+		config.setMinimumIdle(intSetting(settings, MIN_IDLE, 2));
+		config.setMaximumPoolSize(intSetting(settings, MAX_SIZE, 10));
+		config.setConnectionTimeout(longSetting(settings, CONNECTION_TIMEOUT_MS, 30_000));
+		config.setValidationTimeout(longSetting(settings, VALIDATION_TIMEOUT_MS, 3_000));
+		config.setIdleTimeout(longSetting(settings, IDLE_TIMEOUT_MS, 600_000));
+		config.setMaxLifetime(longSetting(settings, MAX_LIFETIME_MS, 1_800_000));
+		config.setLeakDetectionThreshold(longSetting(settings, LEAK_DETECTION_MS, 0));
+		// Without a test query the pool validates with the driver's Connection.isValid()
+		String testQuery = stringSetting(settings, TEST_QUERY, null);
+		if (testQuery != null) {
+			config.setConnectionTestQuery(testQuery);
+		}
+		// Hibernate begins every transaction itself (see provider_disables_autocommit)
+		config.setAutoCommit(false);
+
+		// MySQL driver: client-side statement cache and multi-row rewriting of JDBC batches
+		config.addDataSourceProperty("cachePrepStmts", "true");
+		config.addDataSourceProperty("prepStmtCacheSize", "250");
+		config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+		config.addDataSourceProperty("useServerPrepStmts", "true");
+		config.addDataSourceProperty("rewriteBatchedStatements", "true");
+		config.addDataSourceProperty("cacheResultSetMetadata", "true");
+		config.addDataSourceProperty("cacheServerConfiguration", "true");
+		config.addDataSourceProperty("elideSetAutoCommits", "true");
+		config.addDataSourceProperty("maintainTimeStats", "false");
+		for (Map.Entry<String, Object> entry : settings.entrySet()) {
+			if (entry.getKey().startsWith(DATA_SOURCE_PREFIX)) {
+				config.addDataSourceProperty(entry.getKey().substring(DATA_SOURCE_PREFIX.length()), String.valueOf(entry.getValue()));
+			}
+		}
+
+		config.setMetricsTrackerFactory((poolName, poolStats) -> acquireTracker);
+
+		try {
+			dataSource = new HikariDataSource(config);
+		}
+		catch(RuntimeException e) {
+			throw new HibernateException("Unable to start the connection pool", e);
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return dataSource.getConnection();
+	}
+
+	@Override
+	public void closeConnection(Connection connection) throws SQLException {
+		connection.close();
+	}
+
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return false;
+	}
+
+	@Override
+	public void stop() {
+		if (dataSource != null) {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Current pool usage and acquire latency percentiles.
+	 */
+	public PoolStats getStats() {
+		HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+		int active = pool != null ? pool.getActiveConnections() : 0;
+		int idle = pool != null ? pool.getIdleConnections() : 0;
+		int waiting = pool != null ? pool.getThreadsAwaitingConnection() : 0;
+		int total = pool != null ? pool.getTotalConnections() : 0;
+		long[] samples = acquireTracker.snapshot();
+		return new PoolStats(active, idle, waiting, total, dataSource.getMaximumPoolSize(),
+				acquireTracker.acquired.get(), acquireTracker.timeouts.get(),
+				percentileMillis(samples, 0.50), percentileMillis(samples, 0.95), percentileMillis(samples, 0.99));
+	}
+
+	@Override
+	public boolean isUnwrappableAs(Class<?> unwrapType) {
+		return unwrapType.isAssignableFrom(getClass()) || unwrapType.isAssignableFrom(HikariDataSource.class);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T unwrap(Class<T> unwrapType) {
+		if (unwrapType.isAssignableFrom(getClass())) {
+			return (T) this;
+		}
+		if (unwrapType.isAssignableFrom(HikariDataSource.class)) {
+			return (T) dataSource;
+		}
+		throw new UnknownUnwrapTypeException(unwrapType);
+	}
+
+	private static double percentileMillis(long[] sortedNanos, double percentile) {
+		if (sortedNanos.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+		return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+	}
+
+	private static String stringSetting(Map<String, Object> settings, String key, String defaultValue) {
+		Object value = settings.get(key);
+		return value != null ? value.toString().trim() : defaultValue;
+	}
+
+	private static int intSetting(Map<String, Object> settings, String key, int defaultValue) {
+		String value = stringSetting(settings, key, null);
+		return value != null ? Integer.parseInt(value) : defaultValue;
+	}
+
+	private static long longSetting(Map<String, Object> settings, String key, long defaultValue) {
+		String value = stringSetting(settings, key, null);
+		return value != null ? Long.parseLong(value) : defaultValue;
+	}
+
+	/**
+	 * Records connection acquire times into a fixed-size ring, so percentiles
+	 * reflect recent load at constant memory.
+	 */
+	private static class AcquireTracker implements IMetricsTracker {
+		private final long[] ring;
+		private final AtomicLong acquired = new AtomicLong();
+		private final AtomicLong timeouts = new AtomicLong();
+
+		AcquireTracker(int capacity) {
+			this.ring = new long[capacity];
+		}
+
+		@Override
+		public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+			long n = acquired.getAndIncrement();
+			ring[(int) (n % ring.length)] = elapsedAcquiredNanos;
+		}
+
+		@Override
+		public void recordConnectionTimeout() {
+			timeouts.incrementAndGet();
+		}
+
+		long[] snapshot() {
+			int size = (int) Math.min(acquired.get(), ring.length);
+			long[] copy = Arrays.copyOf(ring, size);
+			Arrays.sort(copy);
+			return copy;
+		}
+	}
+}
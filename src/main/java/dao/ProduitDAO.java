@@ -1,158 +1,435 @@
 package dao;
 
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
-import org.hibernate.HibernateException;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
-import org.hibernate.query.Query;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.engine.spi.SessionImplementor;
 
 import bo.Produit;
+import bo.StockMovement;
+import dto.ProduitDTO;
+import exception.InsufficientStockException;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 public class ProduitDAO {
-public List<Produit> retreive(){
-	Transaction tx=null;
-List<Produit> liste=new ArrayList<Produit>();
+
+	static final String IN_STOCK = "From Produit P where P.qtstock > 0";
+	static final String FIND_ALL = "FROM Produit ORDER BY libelle";
+	static final String SEARCH = "FROM Produit WHERE LOWER(libelle) LIKE LOWER(:term) ORDER BY libelle";
+	static final String COUNT = "SELECT COUNT(p) FROM Produit p";
+	// Bumps the version too, so an edit based on the stock read before this order is detected
+	static final String DECREMENT_STOCK = "UPDATE Produit SET qtstock = qtstock - ?, version = version + 1 WHERE id = ? AND qtstock >= ?";
+
+	/**
+	 * Available stock of product p: qtstock plus the ledger movements not folded in yet
+	 * (none for products in row mode, found through the produitId index).
+	 */
+	static final String AVAILABLE = "CAST(p.qtstock + COALESCE((SELECT SUM(m.quantity) FROM StockMovement m WHERE m.produitId = p.id), 0) AS Integer)";
+
+	// List screens read DTOs straight from the columns: no entity, no persistence context
+	static final String SELECT_DTO = "SELECT new dto.ProduitDTO(p.id, p.libelle, p.prix, " + AVAILABLE + ", p.version, p.ledgerStock) FROM Produit p";
+	static final String FIND_BY_ID_DTO = SELECT_DTO + " WHERE p.id = :id";
+	static final String IN_STOCK_DTO = SELECT_DTO + " WHERE " + AVAILABLE + " > 0";
+	static final String FIND_ALL_DTO = SELECT_DTO + " ORDER BY p.libelle";
+	static final String SEARCH_DTO = SELECT_DTO + " WHERE LOWER(p.libelle) LIKE LOWER(:term) ORDER BY p.libelle";
+	// Null libelles sort first (MySQL ascending order); the id breaks ties
+	static final String PAGE_FIRST = SELECT_DTO + " ORDER BY p.libelle, p.id";
+	static final String PAGE_AFTER = SELECT_DTO + " WHERE p.libelle > :afterLibelle OR (p.libelle = :afterLibelle AND p.id > :afterId) ORDER BY p.libelle, p.id";
+	static final String PAGE_AFTER_NULL = SELECT_DTO + " WHERE p.libelle IS NOT NULL OR p.id > :afterId ORDER BY p.libelle, p.id";
+
+	static final String LIBELLES = "SELECT p.id, p.libelle FROM Produit p";
+	static final String PRIX_BY_ID = "SELECT p.id, p.prix FROM Produit p WHERE p.id IN :ids";
+
+	/** Queries compiled by {@link HibernateUtil} while the SessionFactory warms up. */
+	static final List<String> WARMUP_QUERIES = List.of(IN_STOCK, FIND_ALL, SEARCH, COUNT, LIBELLES, PRIX_BY_ID,
+			FIND_BY_ID_DTO, IN_STOCK_DTO, FIND_ALL_DTO, SEARCH_DTO, PAGE_FIRST, PAGE_AFTER, PAGE_AFTER_NULL);
+
+	public List<Produit> retreive() {
 		try {
-		Session session=HibernateUtil.getSessionFactory().openSession();
-		tx=session.beginTransaction();
-		liste=session.createQuery("From Produit P where P.qtstock > 0").list();
-		tx.commit();
-		session.close();
-		return liste;
-		
-		
-	}
-	catch(HibernateException e) {
-		tx.rollback();
-		e.printStackTrace();
-		return liste;
-	
-	}
-
-	
-}
-public void update(Produit produit){
-	Transaction tx=null;
+			return TxTemplate.read("ProduitDAO.retreive", session ->
+				session.createQuery(IN_STOCK, Produit.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return new ArrayList<Produit>();
+		}
+	}
 
+	/**
+	 * Apply changes to the current state of a product, in one transaction.
+	 * The product is re-read, changed, and written back with a version check: if
+	 * another transaction wrote it meanwhile, the commit fails with an optimistic
+	 * lock exception (not caught here, so the caller can retry).
+	 * @return false if the product does not exist
+	 */
+	public boolean update(int id, Consumer<Produit> changes) {
+		return TxTemplate.write("ProduitDAO.update", session -> {
+			Produit produit = session.find(Produit.class, id);
+			if (produit == null) {
+				return false;
+			}
+			changes.accept(produit);
+			return true;
+		});
+	}
+
+	/**
+	 * Insert a product.
+	 * @return false if the transaction failed (nothing was saved)
+	 */
+	public boolean create(Produit produit) {
 		try {
-		Session session=HibernateUtil.getSessionFactory().openSession();
-		tx=session.beginTransaction();
-		session.update(produit);
-		
-		tx.commit();
-		session.close();
-		System.out.println("====================Produit modifié"+produit.getId() );
-		
-		
-		
-	}
-	catch(HibernateException e) {
-		tx.rollback();
-		e.printStackTrace();
-		
-	
-	}
-
-	
-}
+			TxTemplate.write("ProduitDAO.create", session -> {
+				session.persist(produit);
+				return null;
+			});
+			System.out.println("====================Produit créé: " + produit.getId());
+			return true;
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
 
-public void create(Produit produit) {
-	Transaction tx = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		session.persist(produit);
-		tx.commit();
-		session.close();
-		System.out.println("====================Produit créé: " + produit.getId());
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
+	/**
+	 * Take the given quantities out of the qtstock column, in one transaction.
+	 * Products in ledger mode should go through {@link StockMovementDAO} instead.
+	 * @param quantities quantity to remove, by product id
+	 * @throws InsufficientStockException if a product has less stock than asked; nothing is changed
+	 */
+	public void decrementStock(Map<Integer, Integer> quantities) {
+		TxTemplate.write("ProduitDAO.decrementStock", session -> {
+			decrementStock(session, quantities);
+			return null;
+		});
 	}
-}
 
-/**
- * Get all products from database.
- */
-public List<Produit> getAllProduits() {
-	Transaction tx = null;
-	List<Produit> produits = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		Query<Produit> query = session.createQuery("FROM Produit ORDER BY libelle", Produit.class);
-		produits = query.list();
-		tx.commit();
-		session.close();
-		return produits;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return List.of();
+	/**
+	 * Current price of the given products, by id, within the caller's session
+	 * (stateful or not). Products that do not exist are left out.
+	 */
+	static Map<Integer, Float> prix(SharedSessionContract session, Collection<Integer> produitIds) {
+		Map<Integer, Float> prix = new HashMap<>();
+		if (produitIds.isEmpty()) {
+			return prix;
+		}
+		for (Object[] row : session.createQuery(PRIX_BY_ID, Object[].class).setParameter("ids", produitIds).list()) {
+			prix.put((Integer) row[0], (Float) row[1]);
+		}
+		return prix;
 	}
-}
 
-/**
- * Search products by name or libelle.
- */
-public List<Produit> search(String searchTerm) {
-	Transaction tx = null;
-	List<Produit> produits = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		String hql = "FROM Produit WHERE LOWER(libelle) LIKE LOWER(:term) ORDER BY libelle";
-		Query<Produit> query = session.createQuery(hql, Produit.class);
-		query.setParameter("term", "%" + searchTerm + "%");
-		produits = query.list();
-		tx.commit();
-		session.close();
-		return produits;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return List.of();
+	/**
+	 * Take the given quantities out of stock within the caller's transaction.
+	 * <p>
+	 * Each product gets one conditional UPDATE, sent together as a JDBC batch: the
+	 * check and the decrement are a single atomic statement, so two concurrent orders
+	 * can never both take the last units. Rows are updated in id order so that
+	 * concurrent orders lock them in the same order and cannot deadlock.
+	 * <p>
+	 * Hibernate does not see these updates, so the products are evicted from the
+	 * second-level cache once the transaction completes (committed or not): a cached
+	 * copy would otherwise show the old stock and fail its next version check.
+	 * @throws InsufficientStockException if a product has less stock than asked; the caller's
+	 *         transaction must then be rolled back (TxTemplate does so)
+	 */
+	static void decrementStock(Session session, Map<Integer, Integer> quantities) {
+		if (quantities.isEmpty()) {
+			return;
+		}
+		Map<Integer, Integer> byId = new TreeMap<>(quantities);
+		session.doWork(connection -> {
+			try (PreparedStatement ps = connection.prepareStatement(DECREMENT_STOCK)) {
+				for (Map.Entry<Integer, Integer> entry : byId.entrySet()) {
+					ps.setInt(1, entry.getValue());
+					ps.setInt(2, entry.getKey());
+					ps.setInt(3, entry.getValue());
+					ps.addBatch();
+				}
+				int[] counts = ps.executeBatch();
+				int i = 0;
+				for (Map.Entry<Integer, Integer> entry : byId.entrySet()) {
+					if (counts[i++] == 0) {
+						throw new InsufficientStockException(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+		});
+		session.unwrap(SessionImplementor.class).getActionQueue().registerProcess((success, s) -> {
+			for (Integer id : byId.keySet()) {
+				s.getFactory().getCache().evictEntityData(Produit.class, id);
+			}
+		});
 	}
-}
 
-/**
- * Find product by ID.
- */
-public Produit findById(int id) {
-	Transaction tx = null;
-	Produit produit = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		produit = session.find(Produit.class, id);
-		tx.commit();
-		session.close();
-		return produit;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return null;
+	/**
+	 * Insert many products in JDBC batches, committing every {@code chunkSize} rows.
+	 * @return the number of products inserted
+	 */
+	public int createAll(List<Produit> produits, int chunkSize) {
+		return BulkInsert.insertAll("ProduitDAO.createAll", produits, chunkSize, (session, produit) -> session.insert(produit));
 	}
-}
 
-/**
- * Delete product.
- */
-public boolean delete(Produit produit) {
-	Transaction tx = null;
-	try {
-		Session session = HibernateUtil.getSessionFactory().openSession();
-		tx = session.beginTransaction();
-		session.remove(produit);
-		tx.commit();
-		session.close();
-		return true;
-	} catch (HibernateException e) {
-		if (tx != null) tx.rollback();
-		e.printStackTrace();
-		return false;
+	public int createAll(List<Produit> produits) {
+		return createAll(produits, BulkInsert.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Get all products from database.
+	 */
+	public List<Produit> getAllProduits() {
+		try {
+			return TxTemplate.read("ProduitDAO.getAllProduits", session ->
+				session.createQuery(FIND_ALL, Produit.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Get one page of products ordered by libelle then id, starting after the given
+	 * product (keyset pagination).
+	 * @param afterLibelle libelle of the last product of the previous page (may be null)
+	 * @param afterId      id of the last product of the previous page, or null for the first page
+	 * @param skip         rows to skip past the cursor, to jump ahead without walking every page
+	 */
+	public List<ProduitDTO> getProduitsPage(String afterLibelle, Integer afterId, int skip, int limit) {
+		try {
+			return TxTemplate.read("ProduitDAO.getProduitsPage", session -> {
+				var query = afterId == null
+					? session.createQuery(PAGE_FIRST, ProduitDTO.class)
+					: afterLibelle == null
+						? session.createQuery(PAGE_AFTER_NULL, ProduitDTO.class).setParameter("afterId", afterId)
+						: session.createQuery(PAGE_AFTER, ProduitDTO.class)
+							.setParameter("afterLibelle", afterLibelle)
+							.setParameter("afterId", afterId);
+				return query.setFirstResult(skip).setMaxResults(limit).list();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	public List<ProduitDTO> getProduitsPage(String afterLibelle, Integer afterId, int limit) {
+		return getProduitsPage(afterLibelle, afterId, 0, limit);
+	}
+
+	// Fields the list screen can filter on (see getProduitDTOs(CriteriaFilter, ...))
+	public static final CriteriaFilter.Field<Produit, String> LIBELLE = CriteriaFilter.attribute("libelle");
+	public static final CriteriaFilter.Field<Produit, Float> PRIX = CriteriaFilter.attribute("prix");
+	/** Available stock, as in {@link #AVAILABLE}: the stock column plus the ledger movements. */
+	public static final CriteriaFilter.Field<Produit, Integer> AVAILABLE_STOCK = (cb, query, p) -> {
+		Subquery<Integer> moved = query.subquery(Integer.class);
+		Root<StockMovement> m = moved.from(StockMovement.class);
+		moved.select(cb.sum(m.<Integer>get("quantity"))).where(cb.equal(m.get("produitId"), p.get("id")));
+		return cb.sum(p.<Integer>get("qtstock"), cb.coalesce(moved, 0)).as(Integer.class);
+	};
+
+	/**
+	 * Get one page of the products matching a filter, ordered by libelle then id, starting
+	 * after the given product (same order and cursor as {@link #getProduitsPage(String, Integer, int, int)}).
+	 * The filter is evaluated by the database.
+	 */
+	public List<ProduitDTO> getProduitDTOs(CriteriaFilter<Produit> filter, String afterLibelle, Integer afterId, int skip, int limit) {
+		try {
+			return TxTemplate.search("ProduitDAO.getProduitDTOs", List.of(), session -> {
+				CriteriaBuilder cb = session.getCriteriaBuilder();
+				CriteriaQuery<ProduitDTO> query = cb.createQuery(ProduitDTO.class);
+				Root<Produit> p = query.from(Produit.class);
+				query.select(cb.construct(ProduitDTO.class, p.get("id"), p.get("libelle"), p.get("prix"),
+						AVAILABLE_STOCK.resolve(cb, query, p), p.get("version"), p.get("ledgerStock")));
+				List<Predicate> where = filter.toPredicates(cb, query, p);
+				if (afterId != null) {
+					Expression<String> libelle = p.get("libelle");
+					where.add(afterLibelle == null
+						? cb.or(cb.isNotNull(libelle), cb.greaterThan(p.get("id"), afterId))
+						: cb.or(cb.greaterThan(libelle, afterLibelle),
+							cb.and(cb.equal(libelle, afterLibelle), cb.greaterThan(p.get("id"), afterId))));
+				}
+				query.where(where.toArray(new Predicate[0])).orderBy(cb.asc(p.get("libelle")), cb.asc(p.get("id")));
+				return session.createQuery(query).setFirstResult(skip).setMaxResults(limit).list();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Count the products matching a filter.
+	 */
+	public long countProduits(CriteriaFilter<Produit> filter) {
+		try {
+			return TxTemplate.search("ProduitDAO.countProduits", 0L, session -> {
+				CriteriaBuilder cb = session.getCriteriaBuilder();
+				CriteriaQuery<Long> query = cb.createQuery(Long.class);
+				Root<Produit> p = query.from(Produit.class);
+				query.select(cb.count(p)).where(filter.toPredicates(cb, query, p).toArray(new Predicate[0]));
+				return session.createQuery(query).getSingleResult();
+			});
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * Count all products.
+	 */
+	public long countProduits() {
+		try {
+			return TxTemplate.read("ProduitDAO.countProduits", session ->
+				session.createQuery(COUNT, Long.class).getSingleResult());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * Get the products in stock as DTOs, without loading the entities.
+	 */
+	public List<ProduitDTO> retreiveDTOs() {
+		try {
+			return TxTemplate.read("ProduitDAO.retreiveDTOs", session ->
+				session.createQuery(IN_STOCK_DTO, ProduitDTO.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return new ArrayList<ProduitDTO>();
+		}
+	}
+
+	/**
+	 * Get all products as DTOs, without loading the entities.
+	 */
+	public List<ProduitDTO> getAllProduitDTOs() {
+		try {
+			return loadAllProduitDTOs();
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Get all products as DTOs, for an in-memory copy. Failures are not caught:
+	 * the caller keeps its previous state instead of an empty list.
+	 */
+	public List<ProduitDTO> loadAllProduitDTOs() {
+		return TxTemplate.read("ProduitDAO.loadAllProduitDTOs", session ->
+			session.createQuery(FIND_ALL_DTO, ProduitDTO.class).list());
+	}
+
+	/**
+	 * Search products by libelle, as DTOs, without loading the entities.
+	 */
+	public List<ProduitDTO> searchProduitDTOs(String searchTerm) {
+		try {
+			return TxTemplate.search("ProduitDAO.searchProduitDTOs", List.of(), session ->
+				session.createQuery(SEARCH_DTO, ProduitDTO.class)
+					.setParameter("term", "%" + searchTerm + "%")
+					.list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Search products by name or libelle.
+	 */
+	public List<Produit> search(String searchTerm) {
+		try {
+			return TxTemplate.read("ProduitDAO.search", session ->
+				session.createQuery(SEARCH, Produit.class)
+					.setParameter("term", "%" + searchTerm + "%")
+					.list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Libelle of every product by id, for an in-memory index. Failures are not
+	 * caught: the caller keeps its previous state instead of an empty map.
+	 */
+	public Map<Integer, String> loadLibelles() {
+		return TxTemplate.read("ProduitDAO.loadLibelles", session -> {
+			Map<Integer, String> libelles = new HashMap<>();
+			for (Object[] row : session.createQuery(LIBELLES, Object[].class).list()) {
+				libelles.put((Integer) row[0], (String) row[1]);
+			}
+			return libelles;
+		});
+	}
+
+	/**
+	 * Find a product by ID as a DTO holding its available stock.
+	 */
+	public ProduitDTO findDTOById(int id) {
+		try {
+			return loadDTOById(id);
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Find a product by ID as a DTO holding its available stock. Failures are not
+	 * caught: null only means that the product does not exist.
+	 */
+	public ProduitDTO loadDTOById(int id) {
+		return TxTemplate.read("ProduitDAO.findDTOById", session ->
+			session.createQuery(FIND_BY_ID_DTO, ProduitDTO.class)
+				.setParameter("id", id)
+				.uniqueResult());
+	}
+
+	/**
+	 * Find product by ID.
+	 */
+	public Produit findById(int id) {
+		try {
+			return TxTemplate.read("ProduitDAO.findById", session -> session.find(Produit.class, id));
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Delete product.
+	 */
+	public boolean delete(Produit produit) {
+		if (produit == null) {
+			return false;
+		}
+		try {
+			TxTemplate.write("ProduitDAO.delete", session -> {
+				session.remove(produit);
+				return null;
+			});
+			return true;
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return false;
+		}
 	}
-}
 }
@@ -0,0 +1,78 @@
+package dao;
+
+import java.util.function.Supplier;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+
+/**
+ * Lets another thread cancel the database work of a task, typically a search
+ * superseded by a newer one.
+ * <p>
+ * While work runs through {@link #run(Supplier)}, each session {@link TxTemplate}
+ * opens for it is registered here. {@link #cancel()} cancels the statement
+ * executing on that session ({@link Session#cancelQuery()}, i.e. JDBC
+ * {@code Statement.cancel()}), and any session opened afterwards fails at once.
+ * The transaction timeout still bounds work that is never cancelled.
+ */
+public final class QueryCancellation {
+
+	private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+	private boolean cancelled;
+	private Session session;
+
+	/**
+	 * Run work on the calling thread, with its database work cancellable through this token.
+	 */
+	public <T> T run(Supplier<T> work) {
+		QueryCancellation previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return work.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * Cancel the statement running for the work, if any, and refuse any further session.
+	 * Can be called from any thread, any number of times.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		if (session != null) {
+			try {
+				session.cancelQuery();
+			} catch (RuntimeException e) {
+				// No statement running, or the session already closed: nothing left to cancel
+			}
+		}
+	}
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Token of the work running on the calling thread, or null.
+	 */
+	static QueryCancellation current() {
+		return CURRENT.get();
+	}
+
+	synchronized void attach(Session session) {
+		if (cancelled) {
+			throw new HibernateException("Query cancelled");
+		}
+		this.session = session;
+	}
+
+	synchronized void detach() {
+		session = null;
+	}
+}
@@ -0,0 +1,275 @@
+package dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.AvailableSettings;
+
+/**
+ * Brings the database schema to the version the mappings expect, replacing
+ * {@code hibernate.hbm2ddl.auto=update} (which the configuration now sets to
+ * {@code validate}).
+ * <p>
+ * The schema changes are SQL scripts under {@code dao/migrations/}, listed in
+ * {@link #SCRIPTS} and named {@code V<version>__<description>.sql}. Each one runs
+ * once per database; the versions applied are recorded in the
+ * {@code schema_version} table. A database created by hbm2ddl before this table
+ * existed gets the baseline (version 1, the schema of the original mappings)
+ * recorded without running it; the later scripts then run on it, whatever part
+ * of them hbm2ddl had already applied. A released script is never edited: a
+ * schema change goes in a new script, and in the mappings.
+ * <p>
+ * On MySQL, indexes are created online ({@code ALGORITHM=INPLACE LOCK=NONE}): the
+ * table stays writable while they are built, and a statement that could only
+ * run by locking the table fails instead of blocking every user. Creating an
+ * index or adding a column that already exists is skipped (tables are created
+ * {@code if not exists}), so a script interrupted halfway can be run again. Instances starting together wait for
+ * each other (MySQL named lock).
+ * <p>
+ * Called by {@link HibernateUtil} before the factory is built, so the schema is
+ * up to date when Hibernate validates it; it opens its own JDBC connection.
+ */
+final class SchemaMigrator {
+
+	private static final String LOCATION = "dao/migrations/";
+
+	/** In version order. */
+	private static final List<String> SCRIPTS = List.of(
+		"V1__baseline.sql",
+		"V2__search_indexes.sql",
+		"V3__commande_client_nom.sql",
+		"V4__ligne_commande_prix.sql",
+		"V5__id_sequences.sql",
+		"V6__version_columns.sql",
+		"V7__stock_ledger.sql");
+
+	private static final String HISTORY_TABLE = "schema_version";
+
+	/** A table of the baseline: if it exists, the schema predates the migrations. */
+	private static final String BASELINE_TABLE = "Client";
+
+	private static final String LOCK_NAME = "schema_migration";
+	private static final int LOCK_TIMEOUT_SECONDS = 600;
+
+	private static final Pattern VERSION = Pattern.compile("V(\\d+)__.+\\.sql");
+	private static final Pattern CREATE_INDEX = Pattern.compile(
+			"create\\s+(?:unique\\s+)?index\\s+(\\w+)\\s+on\\s+(\\w+)\\b.*",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final Pattern ADD_COLUMN = Pattern.compile(
+			"alter\\s+table\\s+(\\w+)\\s+add\\s+column\\s+(\\w+)\\b.*",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	private SchemaMigrator() {
+	}
+
+	/**
+	 * Apply the scripts not applied yet, connecting with the JDBC settings of the configuration.
+	 *
+	 * @throws HibernateException if a script fails; the versions before it stay applied
+	 */
+	static void migrate(Properties settings) {
+		String url = settings.getProperty(AvailableSettings.URL);
+		try (Connection connection = DriverManager.getConnection(url,
+				settings.getProperty(AvailableSettings.USER), settings.getProperty(AvailableSettings.PASS))) {
+			migrate(connection);
+		}
+		catch(SQLException | IOException e) {
+			throw new HibernateException("Schema migration failed", e);
+		}
+	}
+
+	private static void migrate(Connection connection) throws SQLException, IOException {
+		connection.setAutoCommit(true);
+		String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+		boolean mysql = product.contains("mysql") || product.contains("mariadb");
+		if (mysql) {
+			lock(connection);
+		}
+		try {
+			try (Statement st = connection.createStatement()) {
+				st.execute("create table if not exists " + HISTORY_TABLE
+						+ " (version integer not null, script varchar(255) not null, applied_at datetime(6) not null, primary key (version))");
+			}
+			Set<Integer> applied = appliedVersions(connection);
+			if (applied.isEmpty() && tableExists(connection, BASELINE_TABLE)) {
+				record(connection, 1, SCRIPTS.get(0));
+				applied.add(1);
+			}
+			for (String script : SCRIPTS) {
+				int version = version(script);
+				if (!applied.contains(version)) {
+					for (String sql : statements(script)) {
+						execute(connection, sql, mysql);
+					}
+					record(connection, version, script);
+				}
+			}
+		}
+		finally {
+			if (mysql) {
+				unlock(connection);
+			}
+		}
+	}
+
+	private static void execute(Connection connection, String sql, boolean mysql) throws SQLException {
+		Matcher index = CREATE_INDEX.matcher(sql);
+		if (index.matches()) {
+			if (indexExists(connection, index.group(2), index.group(1))) {
+				return;
+			}
+			if (mysql) {
+				sql += " ALGORITHM=INPLACE LOCK=NONE";
+			}
+		}
+		Matcher column = ADD_COLUMN.matcher(sql);
+		if (column.matches() && columnExists(connection, column.group(1), column.group(2))) {
+			return;
+		}
+		try (Statement st = connection.createStatement()) {
+			st.execute(sql);
+		}
+	}
+
+	private static void lock(Connection connection) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+			ps.setString(1, LOCK_NAME);
+			ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (!rs.next() || rs.getInt(1) != 1) {
+					throw new SQLException("Timed out waiting for another instance to migrate the schema");
+				}
+			}
+		}
+	}
+
+	private static void unlock(Connection connection) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+			ps.setString(1, LOCK_NAME);
+			ps.executeQuery().close();
+		}
+	}
+
+	private static Set<Integer> appliedVersions(Connection connection) throws SQLException {
+		Set<Integer> versions = new HashSet<>();
+		try (Statement st = connection.createStatement();
+				ResultSet rs = st.executeQuery("SELECT version FROM " + HISTORY_TABLE)) {
+			while (rs.next()) {
+				versions.add(rs.getInt(1));
+			}
+		}
+		return versions;
+	}
+
+	private static void record(Connection connection, int version, String script) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(
+				"INSERT INTO " + HISTORY_TABLE + " (version, script, applied_at) VALUES (?, ?, ?)")) {
+			ps.setInt(1, version);
+			ps.setString(2, script);
+			ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+			ps.executeUpdate();
+		}
+	}
+
+	private static boolean tableExists(Connection connection, String table) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		// Identifiers may be stored in another case than written (lower_case_table_names, H2)
+		for (String name : new String[] { table, table.toLowerCase(Locale.ROOT), table.toUpperCase(Locale.ROOT) }) {
+			try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, name, new String[] { "TABLE" })) {
+				if (rs.next()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		for (String name : new String[] { table, table.toLowerCase(Locale.ROOT), table.toUpperCase(Locale.ROOT) }) {
+			try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, name, false, true)) {
+				while (rs.next()) {
+					if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		for (String name : new String[] { table, table.toLowerCase(Locale.ROOT), table.toUpperCase(Locale.ROOT) }) {
+			try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, name, null)) {
+				while (rs.next()) {
+					if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static int version(String script) {
+		Matcher matcher = VERSION.matcher(script);
+		if (!matcher.matches()) {
+			throw new IllegalStateException("Migration script not named V<version>__<description>.sql: " + script);
+		}
+		return Integer.parseInt(matcher.group(1));
+	}
+
+	/**
+	 * Statements of a script: separated by a semicolon at the end of a line, {@code --} comment lines left out.
+	 */
+	private static List<String> statements(String script) throws IOException {
+		String text;
+		try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + script)) {
+			if (in == null) {
+				throw new IOException("Migration script not found: " + LOCATION + script);
+			}
+			text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		List<String> statements = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		for (String line : text.split("\\R")) {
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+				continue;
+			}
+			if (current.length() > 0) {
+				current.append('\n');
+			}
+			if (trimmed.endsWith(";")) {
+				current.append(trimmed, 0, trimmed.length() - 1);
+				statements.add(current.toString());
+				current.setLength(0);
+			} else {
+				current.append(trimmed);
+			}
+		}
+		if (current.length() > 0) {
+			statements.add(current.toString());
+		}
+		return statements;
+	}
+}
@@ -0,0 +1,145 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Session;
+
+import bo.Commande;
+import bo.Ligne_Commande;
+import bo.Produit;
+import bo.StockMovement;
+import exception.InsufficientStockException;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Append-only stock ledger of the products in ledger mode.
+ * <p>
+ * A sale of such a product inserts a movement instead of updating the product
+ * row, so concurrent orders of a best seller never wait on each other. The
+ * available stock is {@code qtstock} plus the movements not folded in yet (see
+ * {@link ProduitDAO#AVAILABLE}); {@link #compact(int, int)} folds them in.
+ */
+public class StockMovementDAO {
+
+	static final String LEDGER_PRODUITS = "SELECT p.id FROM Produit p WHERE p.ledgerStock = true AND p.id IN :ids";
+	static final String AVAILABLE_BY_ID = "SELECT p.id, " + ProduitDAO.AVAILABLE + " FROM Produit p WHERE p.id IN :ids";
+	static final String PRODUITS_WITH_MOVEMENTS = "SELECT DISTINCT m.produitId FROM StockMovement m";
+	static final String TAIL = "SELECT m.id, m.quantity FROM StockMovement m WHERE m.produitId = :produitId ORDER BY m.id";
+	static final String DELETE_BY_IDS = "DELETE FROM StockMovement m WHERE m.id IN :ids";
+	static final String DELETE_BY_PRODUIT = "DELETE FROM StockMovement m WHERE m.produitId = :produitId";
+
+	/** Queries compiled by {@link HibernateUtil} while the SessionFactory warms up. */
+	static final List<String> WARMUP_QUERIES = List.of(LEDGER_PRODUITS, AVAILABLE_BY_ID, PRODUITS_WITH_MOVEMENTS, TAIL);
+
+	/**
+	 * Ids, among the given ones, of the products kept in ledger mode.
+	 */
+	static Set<Integer> ledgerProduits(Session session, Collection<Integer> produitIds) {
+		if (produitIds.isEmpty()) {
+			return Set.of();
+		}
+		return new HashSet<>(session.createQuery(LEDGER_PRODUITS, Integer.class)
+				.setParameter("ids", produitIds)
+				.list());
+	}
+
+	/**
+	 * Append one movement per line of the command for the given ledger products,
+	 * within the caller's transaction.
+	 * <p>
+	 * The stock check reads the available stock without locking anything: two
+	 * orders racing for the last units may both pass it, and the balance goes
+	 * negative until it is restocked. That is the price of never waiting on the
+	 * product row; products that cannot be oversold should stay in row mode.
+	 * @throws InsufficientStockException if a product has less available stock than asked
+	 */
+	static void recordSales(Session session, Commande commande, Set<Integer> ledgerProduits) {
+		if (ledgerProduits.isEmpty() || commande.getLignes() == null) {
+			return;
+		}
+		Map<Integer, Integer> requested = new HashMap<>();
+		for (Ligne_Commande l : commande.getLignes()) {
+			if (l.getProduit() != null && ledgerProduits.contains(l.getProduit().getId())) {
+				requested.merge(l.getProduit().getId(), l.getQuantite(), Integer::sum);
+			}
+		}
+		Map<Integer, Integer> available = new HashMap<>();
+		for (Object[] row : session.createQuery(AVAILABLE_BY_ID, Object[].class).setParameter("ids", requested.keySet()).list()) {
+			available.put((Integer) row[0], (Integer) row[1]);
+		}
+		for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+			if (available.getOrDefault(entry.getKey(), 0) < entry.getValue()) {
+				throw new InsufficientStockException(entry.getKey(), entry.getValue());
+			}
+		}
+
+		Date now = new Date();
+		for (Ligne_Commande l : commande.getLignes()) {
+			if (l.getProduit() != null && requested.containsKey(l.getProduit().getId())) {
+				session.persist(new StockMovement(l.getProduit().getId(), -l.getQuantite(), commande.getIdcmd(), now));
+			}
+		}
+	}
+
+	/**
+	 * Ids of the products that have movements waiting to be folded in.
+	 */
+	public List<Integer> getProduitsWithMovements() {
+		try {
+			return TxTemplate.read("StockMovementDAO.getProduitsWithMovements", session ->
+				session.createQuery(PRODUITS_WITH_MOVEMENTS, Integer.class).list());
+		} catch (PersistenceException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * Fold the oldest movements of a product into its {@code qtstock}, and delete them,
+	 * in one transaction. The product row is locked for the duration, so two
+	 * compactions of the same product cannot fold the same movements; sales keep
+	 * appending meanwhile, since they do not touch the row.
+	 * @param max at most this many movements are folded, to keep the transaction short
+	 * @return the number of movements folded
+	 */
+	public int compact(int produitId, int max) {
+		return TxTemplate.write("StockMovementDAO.compact", session -> {
+			Produit produit = session.find(Produit.class, produitId, LockModeType.PESSIMISTIC_WRITE);
+			if (produit == null) {
+				// Product deleted: its movements no longer count for anything
+				return session.createMutationQuery(DELETE_BY_PRODUIT)
+						.setParameter("produitId", produitId)
+						.executeUpdate();
+			}
+			List<Object[]> tail = session.createQuery(TAIL, Object[].class)
+					.setParameter("produitId", produitId)
+					.setMaxResults(max)
+					.list();
+			if (tail.isEmpty()) {
+				return 0;
+			}
+			List<Long> ids = new ArrayList<>(tail.size());
+			int sum = 0;
+			for (Object[] row : tail) {
+				ids.add((Long) row[0]);
+				sum += (Integer) row[1];
+			}
+			produit.setQtstock(produit.getQtstock() + sum);
+			if (produit.getQtstock() < 0) {
+				System.err.println("[StockMovementDAO] product " + produitId + " is oversold: stock " + produit.getQtstock());
+			}
+			session.createMutationQuery(DELETE_BY_IDS)
+					.setParameter("ids", ids)
+					.executeUpdate();
+			return ids.size();
+		});
+	}
+}
@@ -0,0 +1,249 @@
+package dao;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.FlushMode;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+/**
+ * Runs a unit of work in its own session and transaction.
+ * <p>
+ * The session is always closed and the transaction rolled back when the work
+ * throws, so a failing DAO call can no longer leak a session or its pooled
+ * connection. Every call is timed under its name, and every statement it runs
+ * is bounded by the transaction timeout. Work running under a
+ * {@link QueryCancellation} can also be cancelled from another thread.
+ */
+public final class TxTemplate {
+
+	/** Default statement timeout for read-only work, in seconds. */
+	public static final int READ_TIMEOUT_SECONDS = 15;
+	/** Default statement timeout for read-write work, in seconds. */
+	public static final int WRITE_TIMEOUT_SECONDS = 30;
+	/** Statement timeout for interactive searches, in seconds: past this the user has typed something else. */
+	public static final int SEARCH_TIMEOUT_SECONDS = 5;
+	/** Calls slower than this are reported on stderr. */
+	public static final long SLOW_CALL_MILLIS = 500;
+
+	public enum Mode {
+		/** No flush, entities loaded read-only (no dirty-checking snapshots). */
+		READ_ONLY,
+		READ_WRITE
+	}
+
+	/**
+	 * Work executed inside a session and transaction.
+	 */
+	@FunctionalInterface
+	public interface Work<T> {
+		T execute(Session session);
+	}
+
+	/**
+	 * Work executed inside a stateless session and transaction.
+	 */
+	@FunctionalInterface
+	public interface StatelessWork<T> {
+		T execute(StatelessSession session);
+	}
+
+	private static final Map<String, Timing> TIMINGS = new ConcurrentHashMap<>();
+
+	private TxTemplate() {
+	}
+
+	/**
+	 * Run read-only work with the default read timeout.
+	 */
+	public static <T> T read(String name, Work<T> work) {
+		return execute(name, Mode.READ_ONLY, READ_TIMEOUT_SECONDS, work);
+	}
+
+	/**
+	 * Run read-write work with the default write timeout.
+	 */
+	public static <T> T write(String name, Work<T> work) {
+		return execute(name, Mode.READ_WRITE, WRITE_TIMEOUT_SECONDS, work);
+	}
+
+	/**
+	 * Run read-only work for an interactive search, with the shorter search timeout.
+	 * A search cancelled through its {@link QueryCancellation} (superseded by a newer
+	 * one) returns {@code ifCancelled} instead of failing: nobody uses its result.
+	 */
+	public static <T> T search(String name, T ifCancelled, Work<T> work) {
+		QueryCancellation cancellation = QueryCancellation.current();
+		try {
+			return execute(name, Mode.READ_ONLY, SEARCH_TIMEOUT_SECONDS, work);
+		}
+		catch(RuntimeException e) {
+			// The cancelled statement fails with whatever the driver reports (usually a QueryTimeoutException)
+			if (cancellation != null && cancellation.isCancelled()) {
+				return ifCancelled;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Run work in a new session and transaction.
+	 * Commits if the work returns normally; otherwise rolls back and rethrows.
+	 *
+	 * @param name           operation name used for timing, e.g. "ClientDAO.findById"
+	 * @param timeoutSeconds statement timeout applied to every query of the transaction
+	 */
+	public static <T> T execute(String name, Mode mode, int timeoutSeconds, Work<T> work) {
+		Session session = openSession();
+		QueryCancellation cancellation = QueryCancellation.current();
+		long start = System.nanoTime();
+		boolean success = false;
+		try (session) {
+			if (cancellation != null) {
+				cancellation.attach(session);
+			}
+			if (mode == Mode.READ_ONLY) {
+				session.setDefaultReadOnly(true);
+				session.setHibernateFlushMode(FlushMode.MANUAL);
+			}
+			Transaction tx = session.getTransaction();
+			tx.setTimeout(timeoutSeconds);
+			tx.begin();
+			try {
+				T result = work.execute(session);
+				tx.commit();
+				success = true;
+				return result;
+			}
+			catch(RuntimeException e) {
+				rollbackQuietly(tx, e);
+				throw e;
+			}
+		}
+		finally {
+			if (cancellation != null) {
+				cancellation.detach();
+			}
+			record(name, System.nanoTime() - start, success);
+		}
+	}
+
+	/**
+	 * Run write work in a new stateless session and transaction, with the default write timeout.
+	 * Nothing is cached or dirty-checked: inserts go straight to JDBC batches.
+	 * Commits if the work returns normally; otherwise rolls back and rethrows.
+	 */
+	public static <T> T stateless(String name, StatelessWork<T> work) {
+		StatelessSession session = openStatelessSession();
+		long start = System.nanoTime();
+		boolean success = false;
+		try (session) {
+			Transaction tx = session.getTransaction();
+			tx.setTimeout(WRITE_TIMEOUT_SECONDS);
+			tx.begin();
+			try {
+				T result = work.execute(session);
+				tx.commit();
+				success = true;
+				return result;
+			}
+			catch(RuntimeException e) {
+				rollbackQuietly(tx, e);
+				throw e;
+			}
+		}
+		finally {
+			record(name, System.nanoTime() - start, success);
+		}
+	}
+
+	/**
+	 * Snapshot of the per-operation timings, sorted by name.
+	 */
+	public static Map<String, Timing> getTimings() {
+		return new TreeMap<>(TIMINGS);
+	}
+
+	private static Session openSession() {
+		SessionFactory factory = HibernateUtil.getSessionFactory();
+		if (factory == null) {
+			throw new HibernateException("SessionFactory is not available");
+		}
+		return factory.openSession();
+	}
+
+	private static StatelessSession openStatelessSession() {
+		SessionFactory factory = HibernateUtil.getSessionFactory();
+		if (factory == null) {
+			throw new HibernateException("SessionFactory is not available");
+		}
+		return factory.openStatelessSession();
+	}
+
+	private static void rollbackQuietly(Transaction tx, RuntimeException cause) {
+		try {
+			if (tx.isActive()) {
+				tx.rollback();
+			}
+		}
+		catch(RuntimeException e) {
+			cause.addSuppressed(e);
+		}
+	}
+
+	private static void record(String name, long elapsedNanos, boolean success) {
+		TIMINGS.computeIfAbsent(name, key -> new Timing()).add(elapsedNanos, success);
+		long elapsedMillis = elapsedNanos / 1_000_000;
+		if (elapsedMillis >= SLOW_CALL_MILLIS) {
+			System.err.println("[TxTemplate] slow call " + name + ": " + elapsedMillis + " ms");
+		}
+	}
+
+	/**
+	 * Cumulative timing of one named operation.
+	 */
+	public static class Timing {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		void add(long elapsedNanos, boolean success) {
+			calls.increment();
+			if (!success) {
+				failures.increment();
+			}
+			totalNanos.add(elapsedNanos);
+			maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+		}
+
+		public long getCalls() {
+			return calls.sum();
+		}
+
+		public long getFailures() {
+			return failures.sum();
+		}
+
+		public double getAverageMillis() {
+			long count = calls.sum();
+			return count == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count;
+		}
+
+		public double getMaxMillis() {
+			return maxNanos.get() / 1_000_000.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("calls=%d, failures=%d, avg=%.2fms, max=%.2fms", getCalls(), getFailures(), getAverageMillis(), getMaxMillis());
+		}
+	}
+}
@@ -61,6 +61,11 @@ public class ClientDTO {
 		this.adresse = adresse;
 		
 	}
+	/** Used by the DAO projection queries. */
+	public ClientDTO(int id, String nom, double capital, String adresse) {
+		this(nom, capital, adresse);
+		this.id = id;
+	}
 	public ClientDTO() {
 		// TODO Auto-generated constructor stub
 	}
@@ -0,0 +1,41 @@
+package dto;
+
+/**
+ * Number of clients in each capital segment.
+ */
+public class ClientSegmentsDTO {
+
+	private long high;
+	private long mid;
+	private long low;
+
+	public ClientSegmentsDTO(long high, long mid, long low) {
+		this.high = high;
+		this.mid = mid;
+		this.low = low;
+	}
+
+	public ClientSegmentsDTO() {
+	}
+
+	public long getHigh() {
+		return high;
+	}
+
+	public long getMid() {
+		return mid;
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	public long getTotal() {
+		return high + mid + low;
+	}
+
+	@Override
+	public String toString() {
+		return "ClientSegments [high=" + high + ", mid=" + mid + ", low=" + low + "]";
+	}
+}
@@ -17,6 +17,11 @@ public class CommandeDTO {
 	
 	private float total;
 
+	private int version;
+
+	/** Identifies an order being entered, for its stock reservations; not persisted. */
+	private String draftId;
+
 	
 	private ClientDTO clientdto;
 
@@ -56,6 +61,17 @@ public class CommandeDTO {
 	public String toString() {
 		return "Commande [idcmd=" + idcmd + ", datecmd=" + datecmd + "]";
 	}
+	/**
+	 * Used by the DAO projection queries; the client columns are null for a command without client.
+	 */
+	public CommandeDTO(int idcmd, Date datecmd, float total, int version, Integer clientId, String clientNom, Double clientCapital, String clientAdresse) {
+		this(idcmd, datecmd);
+		this.total = total;
+		this.version = version;
+		if (clientId != null) {
+			this.clientdto = new ClientDTO(clientId, clientNom, clientCapital != null ? clientCapital : 0, clientAdresse);
+		}
+	}
 	public CommandeDTO() {
 		super();
 	}
@@ -68,6 +84,18 @@ public class CommandeDTO {
 	public void setTotal(float total) {
 		this.total = total;
 	}
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
+	public String getDraftId() {
+		return draftId;
+	}
+	public void setDraftId(String draftId) {
+		this.draftId = draftId;
+	}
 	public List<Ligne_CommandeDTO> getLignes() {
 		return lignes;
 	}
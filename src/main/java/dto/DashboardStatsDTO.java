@@ -0,0 +1,56 @@
+package dto;
+
+/**
+ * Headline figures of the dashboard, computed by the database.
+ */
+public class DashboardStatsDTO {
+
+	private long clientCount;
+	private long orderCount;
+	private long productCount;
+	private double totalRevenue;
+	private double averageOrderValue;
+	private long lowStockCount;
+
+	public DashboardStatsDTO(long clientCount, long orderCount, long productCount, double totalRevenue, double averageOrderValue, long lowStockCount) {
+		this.clientCount = clientCount;
+		this.orderCount = orderCount;
+		this.productCount = productCount;
+		this.totalRevenue = totalRevenue;
+		this.averageOrderValue = averageOrderValue;
+		this.lowStockCount = lowStockCount;
+	}
+
+	public DashboardStatsDTO() {
+	}
+
+	public long getClientCount() {
+		return clientCount;
+	}
+
+	public long getOrderCount() {
+		return orderCount;
+	}
+
+	public long getProductCount() {
+		return productCount;
+	}
+
+	public double getTotalRevenue() {
+		return totalRevenue;
+	}
+
+	public double getAverageOrderValue() {
+		return averageOrderValue;
+	}
+
+	public long getLowStockCount() {
+		return lowStockCount;
+	}
+
+	@Override
+	public String toString() {
+		return "DashboardStats [clients=" + clientCount + ", orders=" + orderCount + ", products=" + productCount
+				+ ", revenue=" + totalRevenue + ", avgOrder=" + averageOrderValue + ", lowStock=" + lowStockCount + "]";
+	}
+}
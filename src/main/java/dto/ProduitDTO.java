@@ -11,6 +11,8 @@ public class ProduitDTO {
 	private String libelle;
 	private float prix;
 	private int qtstock;
+	private int version;
+	private boolean ledgerStock;
 	private float sous_total;
 
 
@@ -65,6 +67,29 @@ public class ProduitDTO {
 		
 	}
 
+	/** Used by the DAO projection queries; qtstock is the available stock. */
+	public ProduitDTO(int id, String libelle, float prix, int qtstock, int version, boolean ledgerStock) {
+		this(id, libelle, prix, qtstock);
+		this.version = version;
+		this.ledgerStock = ledgerStock;
+	}
+
+	public boolean isLedgerStock() {
+		return ledgerStock;
+	}
+
+	public void setLedgerStock(boolean ledgerStock) {
+		this.ledgerStock = ledgerStock;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
 	public float getSous_total() {
 		return sous_total;
 	}
@@ -0,0 +1,25 @@
+package exception;
+
+/**
+ * Thrown when an order asks for more units of a product than are in stock.
+ * The whole order is rolled back.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+	private final int produitId;
+	private final int requested;
+
+	public InsufficientStockException(int produitId, int requested) {
+		super("Insufficient stock for product " + produitId + " (requested " + requested + ")");
+		this.produitId = produitId;
+		this.requested = requested;
+	}
+
+	public int getProduitId() {
+		return produitId;
+	}
+
+	public int getRequested() {
+		return requested;
+	}
+}
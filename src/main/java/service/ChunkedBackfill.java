@@ -0,0 +1,67 @@
+package service;
+
+/**
+ * Background job filling a column of existing rows, walking them by id.
+ * <p>
+ * Each chunk is one short transaction over at most {@code chunkSize} rows, so the
+ * job never locks many rows at once and the application keeps writing them
+ * meanwhile. It runs at every start and ends as soon as no row is left; a failed
+ * chunk stops it until the next start.
+ */
+final class ChunkedBackfill {
+
+	/**
+	 * Fills one chunk, typically a DAO call.
+	 */
+	@FunctionalInterface
+	interface Chunk {
+		/**
+		 * Fill at most {@code max} rows with an id above {@code afterId}.
+		 * @return the id of the last row filled, or -1 if no row is left
+		 */
+		int fill(int afterId, int max);
+	}
+
+	private final String name;
+	private final int chunkSize;
+	private final Chunk chunk;
+	private Thread thread;
+
+	/**
+	 * @param name name of the thread, also used in the log
+	 */
+	ChunkedBackfill(String name, int chunkSize, Chunk chunk) {
+		this.name = name;
+		this.chunkSize = chunkSize;
+		this.chunk = chunk;
+	}
+
+	/**
+	 * Start filling in the background; does nothing if already started.
+	 */
+	synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		thread = new Thread(this::fillAll, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Fill every row left, chunk after chunk.
+	 * @return the number of chunks processed
+	 */
+	int fillAll() {
+		int chunks = 0;
+		int afterId = 0;
+		try {
+			while ((afterId = chunk.fill(afterId, chunkSize)) >= 0) {
+				chunks++;
+			}
+		} catch (RuntimeException e) {
+			System.err.println("[ChunkedBackfill] " + name + " stopped after id " + afterId + ": " + e.getMessage());
+		}
+		return chunks;
+	}
+}
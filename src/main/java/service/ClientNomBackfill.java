@@ -0,0 +1,36 @@
+package service;
+
+import dao.CommandeDAO;
+
+/**
+ * Background job filling the client name copied on the commands saved before
+ * that copy (Commande.clientNom) existed, {@link #CHUNK_SIZE} commands at a time
+ * (see {@link ChunkedBackfill}). Until a command is filled, searches by client
+ * name read the name of its client instead.
+ */
+public final class ClientNomBackfill {
+
+	/** Commands filled per transaction. */
+	public static final int CHUNK_SIZE = 1000;
+
+	private static final ChunkedBackfill JOB = new ChunkedBackfill("client-nom-backfill", CHUNK_SIZE,
+			(afterId, max) -> new CommandeDAO().fillClientNom(afterId, max));
+
+	private ClientNomBackfill() {
+	}
+
+	/**
+	 * Start filling the commands in the background; does nothing if already started.
+	 */
+	public static void start() {
+		JOB.start();
+	}
+
+	/**
+	 * Fill every command still lacking its client name, chunk after chunk.
+	 * @return the number of chunks processed
+	 */
+	public static int fillAll() {
+		return JOB.fillAll();
+	}
+}
@@ -1,11 +1,13 @@
 package service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import bo.Client;
 import dao.ClientDAO;
+import dao.CriteriaFilter;
 import dto.ClientDTO;
 import exception.ClientNotFoundException;
 
@@ -22,10 +24,45 @@ public class ClientService implements ClientServiceInterface {
 	 */
 	public List<ClientDTO> getAllClients() {
 		ClientDAO dao = new ClientDAO();
-		List<Client> clients = dao.getAllClients();
-		return clients.stream()
-			.map(this::fromClient)
-			.collect(Collectors.toList());
+		return dao.getAllClientDTOs();
+	}
+
+	/**
+	 * Get one page of clients ordered by id, starting after the given client.
+	 * @param after last client of the previous page, or null for the first page
+	 */
+	public List<ClientDTO> getClientsPage(ClientDTO after, int skip, int limit) {
+		ClientDAO dao = new ClientDAO();
+		return dao.getClientsPage(after == null ? null : after.getId(), skip, limit);
+	}
+
+	/**
+	 * Get one page of the clients matching the filters of the advanced search, ordered by id.
+	 * @param filters query (in nom or adresse), minCapital, maxCapital; absent keys are not filtered
+	 */
+	public List<ClientDTO> getClientsPage(Map<String, Object> filters, ClientDTO after, int skip, int limit) {
+		ClientDAO dao = new ClientDAO();
+		return dao.getClientDTOs(toFilter(filters), after == null ? null : after.getId(), skip, limit);
+	}
+
+	/**
+	 * Count the clients matching the filters of the advanced search.
+	 */
+	public long countClients(Map<String, Object> filters) {
+		return new ClientDAO().countClients(toFilter(filters));
+	}
+
+	private static CriteriaFilter<Client> toFilter(Map<String, Object> filters) {
+		return new CriteriaFilter<Client>()
+				.contains((String) filters.get("query"), ClientDAO.NOM, ClientDAO.ADRESSE)
+				.between(ClientDAO.CAPITAL, (Double) filters.get("minCapital"), (Double) filters.get("maxCapital"));
+	}
+
+	/**
+	 * Count all clients.
+	 */
+	public long countClients() {
+		return new ClientDAO().countClients();
 	}
 
 	/**
@@ -35,20 +72,42 @@ public class ClientService implements ClientServiceInterface {
 		if (searchTerm == null || searchTerm.trim().isEmpty()) {
 			return getAllClients();
 		}
+		List<ClientDTO> indexed = SearchIndex.DEFAULT.searchClients(searchTerm);
+		if (indexed != null) {
+			return indexed;
+		}
 		ClientDAO dao = new ClientDAO();
-		List<Client> clients = dao.search(searchTerm);
-		return clients.stream()
-			.map(this::fromClient)
-			.collect(Collectors.toList());
+		return dao.searchClientDTOs(searchTerm);
 	}
 
 	@Override
 	public void create(ClientDTO clientdto) {
 		ClientDAO dao=new ClientDAO();
-		dao.create(this.toClient(clientdto));
+		Client client=this.toClient(clientdto);
+		// Indexed only once committed: a failed insert must not show up in searches
+		if (dao.create(client)) {
+			SearchIndex.DEFAULT.clientSaved(this.fromClient(client));
+		}
 		
 	}
 
+	/**
+	 * Create many clients at once, e.g. from a CSV import.
+	 * @return the number of clients created
+	 */
+	public int createAll(List<ClientDTO> clientdtos) {
+		ClientDAO dao=new ClientDAO();
+		List<Client> clients=clientdtos.stream().map(this::toClient).collect(Collectors.toList());
+		int created=dao.createAll(clients);
+		if (created==clients.size()) {
+			clients.forEach(client -> SearchIndex.DEFAULT.clientSaved(this.fromClient(client)));
+		} else {
+			// Some chunks were rolled back: let the index reload what was really stored
+			SearchIndex.DEFAULT.rebuildAsync();
+		}
+		return created;
+	}
+
 	@Override
 	public void update(ClientDTO clientdto, int id) {
 		ClientDAO dao=new ClientDAO();
@@ -58,7 +117,9 @@ public class ClientService implements ClientServiceInterface {
 		 {
 			Client C=this.toClient(clientdto);
 			C.setId(id);
-			dao.update(C);
+			if (dao.update(C)) {
+				SearchIndex.DEFAULT.clientSaved(this.fromClient(C));
+			}
 		}
 		
 	}
@@ -69,7 +130,9 @@ public class ClientService implements ClientServiceInterface {
 
 		
 		
-		 	return dao.delete(dao.findById(id));
+		 	boolean deleted=dao.delete(dao.findById(id));
+		 	if (deleted) SearchIndex.DEFAULT.clientDeleted(id);
+		 	return deleted;
 		
 		
 		
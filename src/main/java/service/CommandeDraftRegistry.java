@@ -0,0 +1,166 @@
+package service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dto.ClientDTO;
+import dto.CommandeDTO;
+import dto.Ligne_CommandeDTO;
+
+/**
+ * Orders being entered, each one under its own draft id.
+ * <p>
+ * Any number of forms (or threads) can build orders at the same time; each
+ * draft is only changed under its own lock. Lines are indexed by product id, so
+ * finding or merging a line does not scan the order, and the total is updated
+ * as lines are added instead of being summed again. Drafts left untouched for
+ * {@code ttlMillis} are evicted and their stock reservations released.
+ */
+public final class CommandeDraftRegistry {
+
+	/** Registry used by the application; same lifetime as the stock reservations. */
+	public static final CommandeDraftRegistry DEFAULT = new CommandeDraftRegistry(15 * 60_000L);
+
+	private static final class Draft {
+		final CommandeDTO commande;
+		final Map<Integer, Ligne_CommandeDTO> lignesByProduit = new HashMap<>();
+		volatile long lastAccess;
+
+		Draft(CommandeDTO commande) {
+			this.commande = commande;
+			this.lastAccess = System.currentTimeMillis();
+		}
+	}
+
+	private final long ttlMillis;
+	private final Map<String, Draft> drafts = new ConcurrentHashMap<>();
+
+	public CommandeDraftRegistry(long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+		DraftSweeper.schedule(ttlMillis, this::evictStale);
+	}
+
+	/**
+	 * Start a new, empty draft.
+	 */
+	public CommandeDTO create() {
+		CommandeDTO commande = new CommandeDTO();
+		commande.setDraftId(UUID.randomUUID().toString());
+		drafts.put(commande.getDraftId(), new Draft(commande));
+		return commande;
+	}
+
+	/**
+	 * Get a copy of a draft, or null if it was removed or evicted. The copy (lines
+	 * included) is taken under the draft's lock, so it stays consistent while the
+	 * form keeps changing the draft.
+	 */
+	public CommandeDTO get(String draftId) {
+		Draft draft = draftId != null ? drafts.get(draftId) : null;
+		if (draft == null) {
+			return null;
+		}
+		draft.lastAccess = System.currentTimeMillis();
+		synchronized (draft) {
+			return copy(draft.commande);
+		}
+	}
+
+	/**
+	 * Line of a draft for the given product, or null.
+	 */
+	public Ligne_CommandeDTO findLigne(String draftId, int produitId) {
+		Draft draft = require(draftId);
+		synchronized (draft) {
+			return draft.lignesByProduit.get(produitId);
+		}
+	}
+
+	/**
+	 * Add a line to a draft. A line for a product already in the draft is merged
+	 * into the existing one (quantities and subtotals added).
+	 */
+	public void addLigne(String draftId, Ligne_CommandeDTO ligne) {
+		Draft draft = require(draftId);
+		synchronized (draft) {
+			CommandeDTO commande = draft.commande;
+			Ligne_CommandeDTO existing = draft.lignesByProduit.get(ligne.getProduit().getId());
+			if (existing == null) {
+				draft.lignesByProduit.put(ligne.getProduit().getId(), ligne);
+				commande.getLignes().add(ligne);
+			} else {
+				existing.setQuantite(existing.getQuantite() + ligne.getQuantite());
+				existing.setSous_total(existing.getSous_total() + ligne.getSous_total());
+			}
+			commande.setTotal(commande.getTotal() + ligne.getSous_total());
+		}
+	}
+
+	/**
+	 * Set the client of a draft.
+	 */
+	public void setClient(String draftId, ClientDTO client) {
+		Draft draft = require(draftId);
+		synchronized (draft) {
+			draft.commande.setClient(client);
+		}
+	}
+
+	/**
+	 * Remove a draft, once saved or abandoned.
+	 * @return the draft, or null if it was already gone
+	 */
+	public CommandeDTO remove(String draftId) {
+		Draft draft = draftId != null ? drafts.remove(draftId) : null;
+		return draft != null ? draft.commande : null;
+	}
+
+	/**
+	 * Number of drafts currently held.
+	 */
+	public int size() {
+		return drafts.size();
+	}
+
+	/**
+	 * Evict the drafts not used for longer than the time to live, releasing their
+	 * stock reservations. Runs periodically in the background.
+	 */
+	public void evictStale() {
+		long limit = System.currentTimeMillis() - ttlMillis;
+		for (Map.Entry<String, Draft> entry : drafts.entrySet()) {
+			if (entry.getValue().lastAccess < limit && drafts.remove(entry.getKey(), entry.getValue())) {
+				StockReservationService.DEFAULT.releaseAll(entry.getKey());
+			}
+		}
+	}
+
+	private static CommandeDTO copy(CommandeDTO commande) {
+		CommandeDTO copy = new CommandeDTO();
+		copy.setDraftId(commande.getDraftId());
+		copy.setIdcmd(commande.getIdcmd());
+		copy.setDatecmd(commande.getDatecmd());
+		copy.setTotal(commande.getTotal());
+		copy.setVersion(commande.getVersion());
+		copy.setClient(commande.getClient());
+		for (Ligne_CommandeDTO ligne : commande.getLignes()) {
+			Ligne_CommandeDTO ligneCopy = new Ligne_CommandeDTO(ligne.getIdligne(), ligne.getQuantite());
+			ligneCopy.setSous_total(ligne.getSous_total());
+			ligneCopy.setProduit(ligne.getProduit());
+			ligneCopy.setCommande(copy);
+			copy.getLignes().add(ligneCopy);
+		}
+		return copy;
+	}
+
+	private Draft require(String draftId) {
+		Draft draft = draftId != null ? drafts.get(draftId) : null;
+		if (draft == null) {
+			throw new IllegalArgumentException("Unknown or expired order draft: " + draftId);
+		}
+		draft.lastAccess = System.currentTimeMillis();
+		return draft;
+	}
+}
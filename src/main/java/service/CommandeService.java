@@ -2,63 +2,112 @@ package service;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import bo.Client;
 import bo.Commande;
 import dao.CommandeDAO;
+import dao.CriteriaFilter;
 import dto.ClientDTO;
 import dto.CommandeDTO;
 import dto.Ligne_CommandeDTO;
+import exception.InsufficientStockException;
 
 public class CommandeService {
-	private static CommandeDTO cmd;
+	/** Beyond this many matching clients, a search by client name stays in SQL rather than sending a huge IN list. */
+	static final int MAX_INDEXED_CLIENTS = 1000;
+
+	/**
+	 * Start a new order draft; its draft id identifies it in the other calls.
+	 */
 	public static CommandeDTO createCommandDTO() {
-		if (cmd==null) cmd=new CommandeDTO();
-		return cmd;
-		
+		return CommandeDraftRegistry.DEFAULT.create();
 	}
-	public CommandeDTO getCommandeDTO() {
-		
-		return cmd;
-		
+	/**
+	 * Get an order draft, or null if it was saved, abandoned or evicted.
+	 */
+	public CommandeDTO getDraft(String draftId) {
+		return CommandeDraftRegistry.DEFAULT.get(draftId);
 	}
-	public void addLigne(Ligne_CommandeDTO ligne) {
-		
-		
-		cmd.getLignes().add(ligne);
-		float total=0;
-		for(Ligne_CommandeDTO l:cmd.getLignes()) {
-			total+=l.getSous_total();
-		}
-		cmd.setTotal(total);
-			
-		
+	/**
+	 * Add a line to a draft, merged with the line of the same product if any.
+	 */
+	public void addLigne(String draftId, Ligne_CommandeDTO ligne) {
+		CommandeDraftRegistry.DEFAULT.addLigne(draftId, ligne);
 	}
-	public void addClient(ClientDTO dto) {
-		
-		cmd.setClient(dto);
-		
-		
+	public void addClient(String draftId, ClientDTO dto) {
+		CommandeDraftRegistry.DEFAULT.setClient(draftId, dto);
 	}
+	/**
+	 * Save an order entered as a draft. Its lines are read from a copy of the draft,
+	 * taken under the draft's lock: the form may still be changing it.
+	 */
 	public void save(CommandeDTO commandedto) {
-		new CommandeDAO().create(this.toCommande(commandedto));
+		CommandeDTO draft = getDraft(commandedto.getDraftId());
+		create(this.toCommande(draft != null ? draft : commandedto), commandedto.getDraftId());
 		
 	}
+	/**
+	 * Save a new command entered as a draft, then drop the draft's stock reservations.
+	 * Either way the product catalog is told that stock changed.
+	 * If a product lacks stock, the reservations are kept (the user can fix the
+	 * quantities) and the product's stock is read again for the next check. If the
+	 * command could not be saved, the exception is passed on and the draft and its
+	 * reservations are kept, so the user can try again.
+	 * @param draftId draft holding the reservations, or null
+	 */
+	public void create(Commande commande, String draftId) {
+		try {
+			new CommandeDAO().create(commande);
+		}
+		catch(InsufficientStockException e) {
+			StockReservationService.DEFAULT.invalidate(e.getProduitId());
+			ProduitCatalogCache.DEFAULT.invalidate();
+			throw e;
+		}
+		ProduitCatalogCache.DEFAULT.invalidate();
+		if (draftId != null) {
+			StockReservationService.DEFAULT.commit(draftId);
+			CommandeDraftRegistry.DEFAULT.remove(draftId);
+		}
+	}
+	/**
+	 * Give up a draft: it is removed and its stock reservations are released.
+	 */
+	public void abandonner(String draftId) {
+		if (draftId != null) {
+			CommandeDraftRegistry.DEFAULT.remove(draftId);
+			StockReservationService.DEFAULT.releaseAll(draftId);
+		}
+	}
+	/**
+	 * Save many commands at once, e.g. from a CSV import.
+	 * @return the number of commands saved
+	 */
+	public int saveAll(List<CommandeDTO> commandedtos) {
+		return new CommandeDAO().createAll(commandedtos.stream().map(this::toCommande).collect(Collectors.toList()));
+	}
 	public Commande toCommande(CommandeDTO commandedto) {
 		Commande commande=new Commande();
 		commande.setDatecmd(commandedto.getDatecmd());
 		
-		commande.setClient(new ClientService().toClient(commandedto.getClient()));
+		if (commandedto.getClient() != null) {
+			commande.setClient(new ClientService().toClient(commandedto.getClient()));
+		}
 		
 		commande.setLignes(commandedto.getLignes().stream().map(ldto->new Ligne_CommandeService().toLigne(ldto)).collect(Collectors.toList()));
 		commande.setTotal(commandedto.getTotal());
 		return commande;
 	}
-	public void initialiserCommande() {
-		cmd=null;
-		createCommandDTO();
-		
+	/**
+	 * Abandon a draft (a no-op once saved) and start a new one.
+	 */
+	public CommandeDTO initialiserCommande(String draftId) {
+		abandonner(draftId);
+		return createCommandDTO();
 	}
 
 	/**
@@ -66,13 +115,53 @@ public class CommandeService {
 	 */
 	public List<CommandeDTO> getAllCommandes() {
 		CommandeDAO dao = new CommandeDAO();
-		List<Commande> commandes = dao.getAllCommandes();
-		if (commandes == null) {
-			commandes = List.of();
-		}
-		return commandes.stream()
-			.map(this::fromCommandeEntity)
-			.collect(Collectors.toList());
+		return dao.getAllCommandeDTOs();
+	}
+
+	/**
+	 * Get one page of commands, newest first, starting after the given command.
+	 * @param after last command of the previous page, or null for the first page
+	 */
+	public List<CommandeDTO> getCommandesPage(CommandeDTO after, int skip, int limit) {
+		CommandeDAO dao = new CommandeDAO();
+		return after == null
+			? dao.getCommandesPage(null, null, skip, limit)
+			: dao.getCommandesPage(after.getDatecmd(), after.getIdcmd(), skip, limit);
+	}
+
+	/**
+	 * Get one page of the commands matching the filters of the advanced search, newest first.
+	 * @param filters query (in the client nom), dateFrom, dateTo (both days included);
+	 *                absent keys are not filtered
+	 */
+	public List<CommandeDTO> getCommandesPage(Map<String, Object> filters, CommandeDTO after, int skip, int limit) {
+		CommandeDAO dao = new CommandeDAO();
+		return after == null
+			? dao.getCommandeDTOs(toFilter(filters), null, null, skip, limit)
+			: dao.getCommandeDTOs(toFilter(filters), after.getDatecmd(), after.getIdcmd(), skip, limit);
+	}
+
+	/**
+	 * Count the commands matching the filters of the advanced search.
+	 */
+	public long countCommandes(Map<String, Object> filters) {
+		return new CommandeDAO().countCommandes(toFilter(filters));
+	}
+
+	private static CriteriaFilter<Commande> toFilter(Map<String, Object> filters) {
+		Date dateTo = (Date) filters.get("dateTo");
+		return new CriteriaFilter<Commande>()
+				.contains((String) filters.get("query"), CommandeDAO.CLIENT_NOM)
+				.atLeast(CommandeDAO.DATECMD, (Date) filters.get("dateFrom"))
+				// dateTo is a day: keep the commands of that whole day
+				.lessThan(CommandeDAO.DATECMD, dateTo == null ? null : new Date(dateTo.getTime() + TimeUnit.DAYS.toMillis(1)));
+	}
+
+	/**
+	 * Count all commands.
+	 */
+	public long countCommandes() {
+		return new CommandeDAO().countCommandes();
 	}
 
 	/**
@@ -83,13 +172,11 @@ public class CommandeService {
 			return getAllCommandes();
 		}
 		CommandeDAO dao = new CommandeDAO();
-		List<Commande> commandes = dao.search(searchTerm);
-		if (commandes == null) {
-			commandes = List.of();
+		Set<Integer> clientIds = SearchIndex.DEFAULT.searchClientIdsByName(searchTerm);
+		if (clientIds != null && clientIds.size() <= MAX_INDEXED_CLIENTS) {
+			return dao.getCommandeDTOsByClients(clientIds);
 		}
-		return commandes.stream()
-			.map(this::fromCommandeEntity)
-			.collect(Collectors.toList());
+		return dao.searchCommandeDTOs(searchTerm);
 	}
 
 	/**
@@ -104,6 +191,20 @@ public class CommandeService {
 		return null;
 	}
 
+	/**
+	 * Save the date, total and client of an existing command onto its current state,
+	 * retrying on version conflicts.
+	 * @return false if the command no longer exists
+	 */
+	public boolean update(Commande values) {
+		CommandeDAO dao = new CommandeDAO();
+		return RetryPolicy.DEFAULT.execute("CommandeService.update", () -> dao.update(values.getIdcmd(), commande -> {
+			commande.setDatecmd(values.getDatecmd());
+			commande.setTotal(values.getTotal());
+			commande.setClient(values.getClient());
+		}));
+	}
+
 	/**
 	 * Delete command.
 	 */
@@ -134,6 +235,7 @@ public class CommandeService {
 		}
 		
 		dto.setTotal(commande.getTotal());
+		dto.setVersion(commande.getVersion());
 		return dto;
 	}
 
@@ -0,0 +1,49 @@
+package service;
+
+import java.util.List;
+
+import dao.CommandeDAO;
+import dao.DashboardDAO;
+import dto.ClientDTO;
+import dto.ClientSegmentsDTO;
+import dto.CommandeDTO;
+import dto.DashboardStatsDTO;
+import dto.ProduitDTO;
+
+public class DashboardService {
+
+	/**
+	 * Get the counts, the revenue and the average order value.
+	 */
+	public DashboardStatsDTO getStats() {
+		return new DashboardDAO().getStats();
+	}
+
+	/**
+	 * Count the clients of each capital segment.
+	 */
+	public ClientSegmentsDTO getClientSegments() {
+		return new DashboardDAO().getClientSegments();
+	}
+
+	/**
+	 * Get the clients with the highest capital.
+	 */
+	public List<ClientDTO> getTopClients(int limit) {
+		return new DashboardDAO().getTopClients(limit);
+	}
+
+	/**
+	 * Get the products closest to running out of stock.
+	 */
+	public List<ProduitDTO> getLowStockProduits(int limit) {
+		return new DashboardDAO().getLowStockProduits(limit);
+	}
+
+	/**
+	 * Get the most recent commands.
+	 */
+	public List<CommandeDTO> getRecentCommandes(int limit) {
+		return new CommandeDAO().getCommandesPage(null, null, limit);
+	}
+}
@@ -0,0 +1,30 @@
+package service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one background thread expiring what order forms left behind: drafts
+ * ({@link CommandeDraftRegistry}) and their stock reservations
+ * ({@link StockReservationService}).
+ */
+final class DraftSweeper {
+
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "draft-sweeper");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private DraftSweeper() {
+	}
+
+	/**
+	 * Run {@code sweep} periodically, twice per time to live (at most once a second).
+	 */
+	static void schedule(long ttlMillis, Runnable sweep) {
+		long period = Math.max(1000, ttlMillis / 2);
+		SCHEDULER.scheduleWithFixedDelay(sweep, period, period, TimeUnit.MILLISECONDS);
+	}
+}
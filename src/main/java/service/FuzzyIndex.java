@@ -0,0 +1,370 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Typo-tolerant index of short texts, returning the documents whose words are
+ * within a small edit distance of the words of a query.
+ * <p>
+ * Works on words, SymSpell style: every word of the dictionary is stored under
+ * all the variants of its first {@link #PREFIX_LENGTH} characters with up to
+ * {@link #MAX_DISTANCE} characters deleted. A query word generates its own
+ * deletion variants; the dictionary words sharing one of them are the only
+ * candidates, and are checked with the real (Damerau) edit distance. A document
+ * matches when every query word matches one of its words; documents are ranked
+ * by the sum of the distances.
+ * <p>
+ * Short query words tolerate fewer typos (see {@link #maxDistance(String)}),
+ * otherwise any 2-letter word would match every other one. Texts and queries are
+ * compared after {@link TrigramIndex#normalize(String)}.
+ * <p>
+ * Thread-safe: any number of searches run together, updates take an exclusive lock.
+ */
+public final class FuzzyIndex {
+
+	public static final int MAX_DISTANCE = 2;
+	private static final int PREFIX_LENGTH = 7;
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+	/** Distinct words of each document. */
+	private final Map<Integer, String[]> documents = new HashMap<>();
+	private final Map<String, Set<Integer>> postings = new HashMap<>();
+	private final Map<String, Set<String>> variants = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Index (or re-index) the text of a document.
+	 */
+	public void put(int id, String text) {
+		String[] words = words(TrigramIndex.normalize(text));
+		lock.writeLock().lock();
+		try {
+			String[] previous = documents.put(id, words);
+			if (previous != null) {
+				if (Arrays.equals(previous, words)) {
+					return;
+				}
+				unlink(id, previous);
+			}
+			link(id, words, postings, variants);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a document from the index.
+	 */
+	public void remove(int id) {
+		lock.writeLock().lock();
+		try {
+			String[] previous = documents.remove(id);
+			if (previous != null) {
+				unlink(id, previous);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replace the whole content of the index. The new maps are built before the
+	 * lock is taken, so searches are only blocked for the swap.
+	 */
+	public void replaceAll(Map<Integer, String> texts) {
+		Map<Integer, String[]> newDocuments = new HashMap<>(texts.size() * 2);
+		Map<String, Set<Integer>> newPostings = new HashMap<>();
+		Map<String, Set<String>> newVariants = new HashMap<>();
+		for (Map.Entry<Integer, String> text : texts.entrySet()) {
+			String[] words = words(TrigramIndex.normalize(text.getValue()));
+			newDocuments.put(text.getKey(), words);
+			link(text.getKey(), words, newPostings, newVariants);
+		}
+		lock.writeLock().lock();
+		try {
+			documents.clear();
+			documents.putAll(newDocuments);
+			postings.clear();
+			postings.putAll(newPostings);
+			variants.clear();
+			variants.putAll(newVariants);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Ids of the documents matching every word of the query within its tolerated
+	 * distance, best first (ties in no particular order), at most {@code limit} of them.
+	 */
+	public List<Integer> search(String query, int limit) {
+		String[] queryWords = words(TrigramIndex.normalize(query));
+		List<Integer> found = new ArrayList<>();
+		if (queryWords.length == 0 || limit <= 0) {
+			return found;
+		}
+		lock.readLock().lock();
+		try {
+			// Drive the search from the query word with the fewest matching documents;
+			// the other words are only checked against the words of those documents
+			List<Map<String, Integer>> matches = new ArrayList<>(queryWords.length);
+			int driver = 0;
+			long driverDocuments = Long.MAX_VALUE;
+			for (int i = 0; i < queryWords.length; i++) {
+				Map<String, Integer> wordMatches = lookup(queryWords[i]);
+				if (wordMatches.isEmpty()) {
+					return found;
+				}
+				long documents = 0;
+				for (String word : wordMatches.keySet()) {
+					documents += postings.get(word).size();
+				}
+				if (documents < driverDocuments) {
+					driver = i;
+					driverDocuments = documents;
+				}
+				matches.add(wordMatches);
+			}
+			Map<String, Integer> driverMatches = matches.remove(driver);
+
+			// Documents by total distance. Driver words are taken by increasing distance, so
+			// once enough documents are at the distance being read, no better one is left.
+			List<List<Integer>> byDistance = new ArrayList<>();
+			Set<Integer> seen = new HashSet<>();
+			int atMostCurrent = 0;
+			for (int distance = 0; distance <= MAX_DISTANCE && atMostCurrent < limit; distance++) {
+				atMostCurrent += bucket(byDistance, distance).size();
+				for (Map.Entry<String, Integer> driverMatch : driverMatches.entrySet()) {
+					if (driverMatch.getValue() != distance) {
+						continue;
+					}
+					for (Integer id : postings.get(driverMatch.getKey())) {
+						if (atMostCurrent >= limit) {
+							break;
+						}
+						if (!seen.add(id)) {
+							continue;
+						}
+						int others = distanceOfOthers(documents.get(id), matches);
+						if (others >= 0) {
+							int total = distance + others;
+							bucket(byDistance, total).add(id);
+							if (total == distance) {
+								atMostCurrent++;
+							}
+						}
+					}
+				}
+			}
+			for (List<Integer> bucket : byDistance) {
+				for (Integer id : bucket) {
+					if (found.size() == limit) {
+						return found;
+					}
+					found.add(id);
+				}
+			}
+			return found;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of documents indexed.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Typos tolerated in a query word: none up to 2 characters, 1 up to 4, then {@link #MAX_DISTANCE}.
+	 */
+	static int maxDistance(String word) {
+		if (word.length() <= 2) {
+			return 0;
+		}
+		return word.length() <= 4 ? 1 : MAX_DISTANCE;
+	}
+
+	/**
+	 * Dictionary words within the tolerated distance of a query word, with their distance.
+	 */
+	private Map<String, Integer> lookup(String queryWord) {
+		Map<String, Integer> found = new HashMap<>();
+		int maxDistance = maxDistance(queryWord);
+		if (maxDistance == 0) {
+			if (postings.containsKey(queryWord)) {
+				found.put(queryWord, 0);
+			}
+			return found;
+		}
+		Set<String> checked = new HashSet<>();
+		for (String variant : deletions(prefix(queryWord), maxDistance)) {
+			Set<String> candidates = variants.get(variant);
+			if (candidates == null) {
+				continue;
+			}
+			for (String candidate : candidates) {
+				if (checked.add(candidate) && Math.abs(candidate.length() - queryWord.length()) <= maxDistance) {
+					int distance = distance(queryWord, candidate, maxDistance);
+					if (distance <= maxDistance) {
+						found.put(candidate, distance);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Sum over the query words of the smallest distance to a word of the document,
+	 * or -1 if one of them matches none of its words.
+	 */
+	private static int distanceOfOthers(String[] documentWords, List<Map<String, Integer>> matches) {
+		int total = 0;
+		for (Map<String, Integer> wordMatches : matches) {
+			int best = -1;
+			for (String word : documentWords) {
+				Integer distance = wordMatches.get(word);
+				if (distance != null && (best < 0 || distance < best)) {
+					best = distance;
+				}
+			}
+			if (best < 0) {
+				return -1;
+			}
+			total += best;
+		}
+		return total;
+	}
+
+	private static List<Integer> bucket(List<List<Integer>> byDistance, int distance) {
+		while (byDistance.size() <= distance) {
+			byDistance.add(new ArrayList<>());
+		}
+		return byDistance.get(distance);
+	}
+
+	private static void link(int id, String[] words, Map<String, Set<Integer>> postings, Map<String, Set<String>> variants) {
+		for (String word : words) {
+			Set<Integer> posting = postings.get(word);
+			if (posting == null) {
+				posting = new HashSet<>();
+				postings.put(word, posting);
+				for (String variant : deletions(prefix(word), MAX_DISTANCE)) {
+					variants.computeIfAbsent(variant, key -> new HashSet<>(2)).add(word);
+				}
+			}
+			posting.add(id);
+		}
+	}
+
+	private void unlink(int id, String[] words) {
+		for (String word : words) {
+			Set<Integer> posting = postings.get(word);
+			if (posting == null) {
+				continue;
+			}
+			posting.remove(id);
+			if (posting.isEmpty()) {
+				postings.remove(word);
+				for (String variant : deletions(prefix(word), MAX_DISTANCE)) {
+					Set<String> variantWords = variants.get(variant);
+					if (variantWords != null) {
+						variantWords.remove(word);
+						if (variantWords.isEmpty()) {
+							variants.remove(variant);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static String[] words(String normalized) {
+		Set<String> words = new LinkedHashSet<>();
+		for (String word : SEPARATORS.split(normalized)) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words.toArray(new String[0]);
+	}
+
+	private static String prefix(String word) {
+		return word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+	}
+
+	/**
+	 * The word and every string obtained by deleting up to {@code distance} of its
+	 * characters, never down to the empty string.
+	 */
+	private static Set<String> deletions(String word, int distance) {
+		Set<String> deletions = new HashSet<>();
+		deletions.add(word);
+		collectDeletions(word, distance, deletions);
+		return deletions;
+	}
+
+	private static void collectDeletions(String word, int distance, Set<String> deletions) {
+		if (distance == 0 || word.length() <= 1) {
+			return;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			String deletion = word.substring(0, i) + word.substring(i + 1);
+			if (deletions.add(deletion)) {
+				collectDeletions(deletion, distance - 1, deletions);
+			}
+		}
+	}
+
+	/**
+	 * Edit distance counting insertions, deletions, substitutions and swaps of two
+	 * adjacent characters; stops early and returns {@code max + 1} once it exceeds {@code max}.
+	 */
+	static int distance(String a, String b, int max) {
+		int[] previous2 = new int[b.length() + 1];
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					value = Math.min(value, previous2[j - 2] + 1);
+				}
+				current[j] = value;
+				rowMin = Math.min(rowMin, value);
+			}
+			if (rowMin > max) {
+				return max + 1;
+			}
+			int[] recycled = previous2;
+			previous2 = previous;
+			previous = current;
+			current = recycled;
+		}
+		return Math.min(previous[b.length()], max + 1);
+	}
+}
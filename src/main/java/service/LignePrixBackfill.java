@@ -0,0 +1,35 @@
+package service;
+
+import dao.CommandeDAO;
+
+/**
+ * Background job pricing the order lines saved before their unit price and
+ * subtotal were recorded, at the current price of their product (the only one
+ * known for them), {@link #CHUNK_SIZE} lines at a time (see {@link ChunkedBackfill}).
+ */
+public final class LignePrixBackfill {
+
+	/** Lines priced per transaction. */
+	public static final int CHUNK_SIZE = 1000;
+
+	private static final ChunkedBackfill JOB = new ChunkedBackfill("ligne-prix-backfill", CHUNK_SIZE,
+			(afterId, max) -> new CommandeDAO().fillLignePrix(afterId, max));
+
+	private LignePrixBackfill() {
+	}
+
+	/**
+	 * Start pricing the lines in the background; does nothing if already started.
+	 */
+	public static void start() {
+		JOB.start();
+	}
+
+	/**
+	 * Price every line still lacking a price, chunk after chunk.
+	 * @return the number of chunks processed
+	 */
+	public static int fillAll() {
+		return JOB.fillAll();
+	}
+}
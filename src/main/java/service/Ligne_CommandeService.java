@@ -9,9 +9,13 @@ import dto.ProduitDTO;
 
 public class Ligne_CommandeService {
 
-	public Ligne_CommandeDTO getNewLigne(int q,ProduitDTO p) {
+	/**
+	 * Build a line for a draft, reserving its quantity: null if the stock
+	 * not held by other drafts is too low.
+	 */
+	public Ligne_CommandeDTO getNewLigne(String draftId,int q,ProduitDTO p) {
 		Ligne_CommandeDTO ligne = null;
-		if(q<=p.getQtstock()) {
+		if(reserver(draftId, p, q)) {
 		ligne=new Ligne_CommandeDTO();
 		ligne.setQuantite(q);
 		ligne.setSous_total(ligne.getQuantite()*p.getPrix());
@@ -27,20 +31,29 @@ public class Ligne_CommandeService {
 		ligne.setSous_total(lignedto.getSous_total());
 		return ligne;
 	}
-	public boolean exists(ProduitDTO p) {
-		CommandeDTO cmd=new CommandeService().getCommandeDTO();
-		boolean trouve=false;
-		
-		for(Ligne_CommandeDTO l:cmd.getLignes()) 
-		{
-			if(l.getProduit().getId()==p.getId())
-			{
-				trouve=true;
-				
-				break;
-			}
-		}
-		
-		return trouve;
+	/**
+	 * Reserve q units of the product for a draft.
+	 * @return false if the stock not held by other drafts is too low
+	 */
+	public boolean reserver(String draftId, ProduitDTO p, int q) {
+		return StockReservationService.DEFAULT.reserve(draftId, p.getId(), q);
+	}
+	/**
+	 * Give back q units reserved by a draft.
+	 */
+	public void liberer(String draftId, ProduitDTO p, int q) {
+		StockReservationService.DEFAULT.release(draftId, p.getId(), q);
+	}
+	/**
+	 * Stock of the product not held by any draft.
+	 */
+	public int disponible(ProduitDTO p) {
+		return StockReservationService.DEFAULT.available(p.getId());
+	}
+	/**
+	 * True if the draft already has a line for the product.
+	 */
+	public boolean exists(String draftId, ProduitDTO p) {
+		return CommandeDraftRegistry.DEFAULT.findLigne(draftId, p.getId()) != null;
 	}
 }
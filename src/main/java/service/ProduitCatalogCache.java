@@ -0,0 +1,182 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dao.ProduitDAO;
+import dto.ProduitDTO;
+
+/**
+ * In-memory copy of the product catalog, shared by every product picker.
+ * <p>
+ * Readers get an immutable snapshot of all products (ordered by libelle, with
+ * their available stock), indexed by id and by normalized libelle, without
+ * touching the database. The services signal each change to the products or
+ * their stock with {@link #invalidate()}; the snapshot is then rebuilt on a
+ * background thread while readers keep using the previous one. A snapshot
+ * older than {@code maxAgeMillis} is refreshed the same way, to pick up changes
+ * made by other instances of the application.
+ */
+public final class ProduitCatalogCache {
+
+	public static final long DEFAULT_MAX_AGE_MILLIS = 60_000;
+
+	/** Catalog used by the application. */
+	public static final ProduitCatalogCache DEFAULT = new ProduitCatalogCache(DEFAULT_MAX_AGE_MILLIS);
+
+	/**
+	 * One immutable state of the catalog. The DTOs are shared and must not be modified.
+	 */
+	public static final class Snapshot {
+		private final List<ProduitDTO> produits;
+		private final List<ProduitDTO> inStock;
+		private final Map<Integer, ProduitDTO> byId;
+		private final Map<String, List<ProduitDTO>> byLibelle;
+		private final long loadedAt;
+
+		Snapshot(List<ProduitDTO> produits, long loadedAt) {
+			List<ProduitDTO> inStock = new ArrayList<>();
+			Map<Integer, ProduitDTO> byId = new HashMap<>();
+			Map<String, List<ProduitDTO>> byLibelle = new HashMap<>();
+			for (ProduitDTO p : produits) {
+				if (p.getQtstock() > 0) {
+					inStock.add(p);
+				}
+				byId.put(p.getId(), p);
+				byLibelle.computeIfAbsent(normalize(p.getLibelle()), key -> new ArrayList<>(1)).add(p);
+			}
+			this.produits = List.copyOf(produits);
+			this.inStock = List.copyOf(inStock);
+			this.byId = Collections.unmodifiableMap(byId);
+			this.byLibelle = Collections.unmodifiableMap(byLibelle);
+			this.loadedAt = loadedAt;
+		}
+
+		/** All products, ordered by libelle. */
+		public List<ProduitDTO> getProduits() {
+			return produits;
+		}
+
+		/** Products with available stock, ordered by libelle. */
+		public List<ProduitDTO> getInStock() {
+			return inStock;
+		}
+
+		public ProduitDTO findById(int id) {
+			return byId.get(id);
+		}
+
+		/** Products whose libelle matches once normalized (see {@link ProduitCatalogCache#normalize(String)}). */
+		public List<ProduitDTO> findByLibelle(String libelle) {
+			List<ProduitDTO> found = byLibelle.get(normalize(libelle));
+			return found != null ? Collections.unmodifiableList(found) : List.of();
+		}
+
+		/** When the snapshot was read from the database, in epoch milliseconds. */
+		public long getLoadedAt() {
+			return loadedAt;
+		}
+	}
+
+	private final long maxAgeMillis;
+	private final AtomicBoolean refreshPending = new AtomicBoolean();
+	private final ExecutorService refresher = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "produit-catalog-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private volatile Snapshot snapshot;
+
+	public ProduitCatalogCache(long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * Current snapshot. Only the very first call, if {@link #refreshAsync()} was not
+	 * called at startup, waits for the database; if that load fails, an empty
+	 * catalog is returned and the next call tries again.
+	 */
+	public Snapshot snapshot() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (snapshot == null) {
+					try {
+						snapshot = load();
+					} catch (RuntimeException e) {
+						System.err.println("[ProduitCatalogCache] load failed: " + e.getMessage());
+						return new Snapshot(List.of(), 0);
+					}
+				}
+				return snapshot;
+			}
+		}
+		if (System.currentTimeMillis() - current.getLoadedAt() > maxAgeMillis) {
+			refreshAsync();
+		}
+		return current;
+	}
+
+	/** All products, ordered by libelle. */
+	public List<ProduitDTO> getAll() {
+		return snapshot().getProduits();
+	}
+
+	/** Products with available stock, ordered by libelle. */
+	public List<ProduitDTO> getInStock() {
+		return snapshot().getInStock();
+	}
+
+	public ProduitDTO findById(int id) {
+		return snapshot().findById(id);
+	}
+
+	public List<ProduitDTO> findByLibelle(String libelle) {
+		return snapshot().findByLibelle(libelle);
+	}
+
+	/**
+	 * Signal that products or their stock changed: the snapshot is rebuilt in the background.
+	 */
+	public void invalidate() {
+		refreshAsync();
+	}
+
+	/**
+	 * Rebuild the snapshot in the background. Signals received while a rebuild is
+	 * waiting to start are merged into it; one received during a rebuild starts another.
+	 */
+	public void refreshAsync() {
+		if (refreshPending.compareAndSet(false, true)) {
+			refresher.execute(() -> {
+				refreshPending.set(false);
+				try {
+					snapshot = load();
+				} catch (RuntimeException e) {
+					System.err.println("[ProduitCatalogCache] refresh failed: " + e.getMessage());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Key used by the libelle index; same form as the search index (see {@link TrigramIndex#normalize(String)}).
+	 */
+	public static String normalize(String libelle) {
+		return TrigramIndex.normalize(libelle);
+	}
+
+	/**
+	 * Read the catalog; a database failure is thrown, so the previous snapshot is kept.
+	 */
+	private static Snapshot load() {
+		long now = System.currentTimeMillis();
+		return new Snapshot(new ProduitDAO().loadAllProduitDTOs(), now);
+	}
+}
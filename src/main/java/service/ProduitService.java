@@ -1,11 +1,16 @@
 package service;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 import bo.Client;
 import bo.Produit;
+import dao.CriteriaFilter;
 import dao.ProduitDAO;
 import dto.ClientDTO;
 import dto.CommandeDTO;
@@ -14,11 +19,20 @@ import dto.ProduitDTO;
 
 public class ProduitService implements ProduitServiceInterface{
 
+	/**
+	 * Products in stock, from the shared catalog (no database access).
+	 */
 	@Override
 	public List<ProduitDTO> retreive() {
 		
-		 List<ProduitDTO> produitdtos=new ProduitDAO().retreive().stream().map(p->fromProduit(p)).collect(Collectors.toList());
-		 return produitdtos;
+		 return ProduitCatalogCache.DEFAULT.getInStock();
+	}
+	/**
+	 * All products, from the shared catalog (no database access); may lag a
+	 * change made by another instance of the application by up to a minute.
+	 */
+	public List<ProduitDTO> getCatalogue() {
+		return ProduitCatalogCache.DEFAULT.getAll();
 	}
 	public ProduitDTO fromProduit(Produit produit) {
 		ProduitDTO produitdto=new ProduitDTO();
@@ -26,6 +40,8 @@ public class ProduitService implements ProduitServiceInterface{
 		produitdto.setQtstock(produit.getQtstock());
 		produitdto.setLibelle(produit.getLibelle());
 		produitdto.setPrix(produit.getPrix());
+		produitdto.setVersion(produit.getVersion());
+		produitdto.setLedgerStock(produit.isLedgerStock());
 		
 		return produitdto;
 		
@@ -37,19 +53,12 @@ public class ProduitService implements ProduitServiceInterface{
 		produit.setQtstock(produitdto.getQtstock());
 		produit.setLibelle(produitdto.getLibelle());
 		produit.setPrix(produitdto.getPrix());
+		produit.setVersion(produitdto.getVersion());
+		produit.setLedgerStock(produitdto.isLedgerStock());
 		
 		return produit;
 		
 		
-	}
-	public void decrease_stock() {
-		CommandeDTO cmd=new CommandeService().getCommandeDTO();
-		for(Ligne_CommandeDTO l:cmd.getLignes()) {
-			ProduitDTO p=l.getProduit();
-			p.setQtstock(p.getQtstock()-l.getQuantite());
-			new ProduitDAO().update(this.toProduit(p));
-		}
-		
 	}
 
 	/**
@@ -57,13 +66,55 @@ public class ProduitService implements ProduitServiceInterface{
 	 */
 	public List<ProduitDTO> getAllProduits() {
 		ProduitDAO dao = new ProduitDAO();
-		List<Produit> produits = dao.getAllProduits();
-		if (produits == null) {
-			produits = List.of();
-		}
-		return produits.stream()
-			.map(this::fromProduit)
-			.collect(Collectors.toList());
+		return dao.getAllProduitDTOs();
+	}
+
+	/**
+	 * Get one page of products ordered by libelle, starting after the given product.
+	 * @param after last product of the previous page, or null for the first page
+	 */
+	public List<ProduitDTO> getProduitsPage(ProduitDTO after, int skip, int limit) {
+		ProduitDAO dao = new ProduitDAO();
+		return after == null
+			? dao.getProduitsPage(null, null, skip, limit)
+			: dao.getProduitsPage(after.getLibelle(), after.getId(), skip, limit);
+	}
+
+	/**
+	 * Get one page of the products matching the filters of the advanced search, ordered by libelle.
+	 * @param filters query (in libelle), minPrice, maxPrice, minStock, maxStock (available stock);
+	 *                absent keys are not filtered
+	 */
+	public List<ProduitDTO> getProduitsPage(Map<String, Object> filters, ProduitDTO after, int skip, int limit) {
+		ProduitDAO dao = new ProduitDAO();
+		return after == null
+			? dao.getProduitDTOs(toFilter(filters), null, null, skip, limit)
+			: dao.getProduitDTOs(toFilter(filters), after.getLibelle(), after.getId(), skip, limit);
+	}
+
+	/**
+	 * Count the products matching the filters of the advanced search.
+	 */
+	public long countProduits(Map<String, Object> filters) {
+		return new ProduitDAO().countProduits(toFilter(filters));
+	}
+
+	private static CriteriaFilter<Produit> toFilter(Map<String, Object> filters) {
+		return new CriteriaFilter<Produit>()
+				.contains((String) filters.get("query"), ProduitDAO.LIBELLE)
+				.between(ProduitDAO.PRIX, toFloat(filters.get("minPrice")), toFloat(filters.get("maxPrice")))
+				.between(ProduitDAO.AVAILABLE_STOCK, (Integer) filters.get("minStock"), (Integer) filters.get("maxStock"));
+	}
+
+	private static Float toFloat(Object number) {
+		return number == null ? null : ((Number) number).floatValue();
+	}
+
+	/**
+	 * Count all products.
+	 */
+	public long countProduits() {
+		return new ProduitDAO().countProduits();
 	}
 
 	/**
@@ -73,26 +124,47 @@ public class ProduitService implements ProduitServiceInterface{
 		if (searchTerm == null || searchTerm.trim().isEmpty()) {
 			return getAllProduits();
 		}
+		Set<Integer> ids = SearchIndex.DEFAULT.searchProduitIds(searchTerm);
+		if (ids != null) {
+			// Index hit: the products themselves come from the catalog, with their current stock
+			ProduitCatalogCache.Snapshot catalog = ProduitCatalogCache.DEFAULT.snapshot();
+			return ids.stream()
+					.map(catalog::findById)
+					.filter(Objects::nonNull)
+					.sorted(Comparator.comparing((ProduitDTO p) -> TrigramIndex.normalize(p.getLibelle())).thenComparingInt(ProduitDTO::getId))
+					.collect(Collectors.toList());
+		}
 		ProduitDAO dao = new ProduitDAO();
-		List<Produit> produits = dao.search(searchTerm);
-		if (produits == null) {
-			produits = List.of();
+		return dao.searchProduitDTOs(searchTerm);
+	}
+
+	/**
+	 * Products for a term typed in a product picker: those whose libelle contains
+	 * it or, if there are none (typically a typo), those whose libelle is within a
+	 * couple of typos of it, best first. At most {@code limit} products.
+	 */
+	public List<ProduitDTO> suggestProduits(String searchTerm, int limit) {
+		List<ProduitDTO> found = searchProduits(searchTerm);
+		if (!found.isEmpty()) {
+			return found.size() > limit ? found.subList(0, limit) : found;
+		}
+		List<Integer> ids = SearchIndex.DEFAULT.searchProduitIdsFuzzy(searchTerm, limit);
+		if (ids == null) {
+			return found;
 		}
-		return produits.stream()
-			.map(this::fromProduit)
-			.collect(Collectors.toList());
+		ProduitCatalogCache.Snapshot catalog = ProduitCatalogCache.DEFAULT.snapshot();
+		return ids.stream()
+				.map(catalog::findById)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
 	}
 
 	/**
-	 * Get product by ID.
+	 * Get product by ID, with its available stock.
 	 */
 	public ProduitDTO getProduitDTO(int id) {
 		ProduitDAO dao = new ProduitDAO();
-		Produit produit = dao.findById(id);
-		if (produit != null) {
-			return this.fromProduit(produit);
-		}
-		return null;
+		return dao.findDTOById(id);
 	}
 
 	/**
@@ -101,18 +173,92 @@ public class ProduitService implements ProduitServiceInterface{
 	public boolean delete(int id) {
 		ProduitDAO dao = new ProduitDAO();
 		Produit produit = dao.findById(id);
-		if (produit != null) {
-			return dao.delete(produit);
+		if (produit != null && dao.delete(produit)) {
+			ProduitCatalogCache.DEFAULT.invalidate();
+			SearchIndex.DEFAULT.produitDeleted(id);
+			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Create many products at once, e.g. from a CSV import.
+	 * @return the number of products created
+	 */
+	public int createAll(List<ProduitDTO> produitDTOs) {
+		ProduitDAO dao = new ProduitDAO();
+		List<Produit> produits = produitDTOs.stream().map(this::toProduit).collect(Collectors.toList());
+		int created = dao.createAll(produits);
+		if (created > 0) {
+			ProduitCatalogCache.DEFAULT.invalidate();
+		}
+		if (created == produits.size()) {
+			produits.forEach(produit -> SearchIndex.DEFAULT.produitSaved(produit.getId(), produit.getLibelle()));
+		} else {
+			// Some chunks were rolled back: let the index reload what was really stored
+			SearchIndex.DEFAULT.rebuildAsync();
+		}
+		return created;
+	}
+
+	/**
+	 * Save the fields the user changed, on top of the product's current state.
+	 * <p>
+	 * Only fields that differ between {@code original} (as shown in the form) and
+	 * {@code edited} are written, and the stock is changed by the same difference,
+	 * so orders placed while the form was open are not undone. A concurrent write
+	 * makes the attempt fail on its version check; it is then retried on fresh data.
+	 * @return false if the product no longer exists
+	 */
+	public boolean update(ProduitDTO original, ProduitDTO edited) {
+		ProduitDAO dao = new ProduitDAO();
+		int stockDelta = edited.getQtstock() - original.getQtstock();
+		String newLibelle = Objects.equals(original.getLibelle(), edited.getLibelle()) ? null : edited.getLibelle();
+		return updated(edited.getId(), newLibelle, RetryPolicy.DEFAULT.execute("ProduitService.update", () -> dao.update(edited.getId(), produit -> {
+			if (!Objects.equals(original.getLibelle(), edited.getLibelle())) {
+				produit.setLibelle(edited.getLibelle());
+			}
+			if (original.getPrix() != edited.getPrix()) {
+				produit.setPrix(edited.getPrix());
+			}
+			if (stockDelta != 0) {
+				produit.setQtstock(produit.getQtstock() + stockDelta);
+			}
+			if (original.isLedgerStock() != edited.isLedgerStock()) {
+				produit.setLedgerStock(edited.isLedgerStock());
+			}
+		})));
+	}
+
+	/**
+	 * Signal a product update to the catalog and, if its libelle changed (non-null), to the search index.
+	 */
+	private static boolean updated(int id, String libelle, boolean found) {
+		if (found) {
+			ProduitCatalogCache.DEFAULT.invalidate();
+			if (libelle != null) {
+				SearchIndex.DEFAULT.produitSaved(id, libelle);
+			}
+		}
+		return found;
+	}
+
 	/**
 	 * Create a new product from DTO.
 	 */
 	public void create(ProduitDTO produitDTO) {
+		create(toProduit(produitDTO));
+	}
+
+	/**
+	 * Create a new product.
+	 */
+	public void create(Produit produit) {
 		ProduitDAO dao = new ProduitDAO();
-		Produit produit = toProduit(produitDTO);
-		dao.create(produit);
+		// Indexed only once committed: a failed insert must not show up in searches
+		if (dao.create(produit)) {
+			ProduitCatalogCache.DEFAULT.invalidate();
+			SearchIndex.DEFAULT.produitSaved(produit.getId(), produit.getLibelle());
+		}
 	}
 }
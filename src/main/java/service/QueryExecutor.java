@@ -0,0 +1,45 @@
+package service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool running independent read queries concurrently, each one in
+ * its own session (every DAO call opens its own through TxTemplate).
+ * <p>
+ * The pool is smaller than the connection pool, so concurrent screens
+ * cannot starve the rest of the application of connections.
+ */
+public final class QueryExecutor {
+
+	/** Queries running at the same time; the others wait in the queue. */
+	public static final int THREADS = 4;
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+			THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+				Thread thread = new Thread(task, "query-" + THREAD_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	private QueryExecutor() {
+	}
+
+	/**
+	 * Run a query on the pool.
+	 * @return a future completed with its result, or exceptionally if it throws
+	 */
+	public static <T> CompletableFuture<T> submit(Supplier<T> query) {
+		return CompletableFuture.supplyAsync(query, EXECUTOR);
+	}
+}
@@ -0,0 +1,138 @@
+package service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.hibernate.StaleStateException;
+
+import jakarta.persistence.OptimisticLockException;
+
+/**
+ * Retries a unit of work that lost an optimistic locking race.
+ * <p>
+ * Entities with a {@code @Version} are checked when they are written: if another
+ * transaction committed in between, the write fails instead of overwriting it.
+ * The work is then run again from scratch (it must re-read what it changes),
+ * after a random pause that grows with each attempt, so that competing writers
+ * spread out instead of colliding again. Counters per operation show how often
+ * this happens.
+ */
+public final class RetryPolicy {
+
+	/** Policy used by the services: 4 attempts, pauses of up to 20, 40, then 80 ms. */
+	public static final RetryPolicy DEFAULT = new RetryPolicy(4, 20, 500);
+
+	private static final Map<String, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+	private final int maxAttempts;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+
+	public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+		}
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+
+	/**
+	 * Run the work, running it again while it fails on an optimistic lock conflict.
+	 * Any other failure, or the last conflict once attempts are exhausted, is rethrown.
+	 *
+	 * @param name operation name used for the counters, e.g. "ProduitService.update"
+	 */
+	public <T> T execute(String name, Supplier<T> work) {
+		Counters counters = COUNTERS.computeIfAbsent(name, key -> new Counters());
+		counters.calls.increment();
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return work.get();
+			}
+			catch(RuntimeException e) {
+				if (!isOptimisticLockFailure(e)) {
+					throw e;
+				}
+				counters.conflicts.increment();
+				if (attempt >= maxAttempts) {
+					counters.exhausted.increment();
+					System.err.println("[RetryPolicy] " + name + " gave up after " + attempt + " conflicting attempts");
+					throw e;
+				}
+				counters.retries.increment();
+				pause(attempt, e);
+			}
+		}
+	}
+
+	/**
+	 * True if the exception, or one of its causes, reports a version conflict.
+	 */
+	public static boolean isOptimisticLockFailure(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof OptimisticLockException || t instanceof StaleStateException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Snapshot of the per-operation counters, sorted by name.
+	 */
+	public static Map<String, Counters> getCounters() {
+		return new TreeMap<>(COUNTERS);
+	}
+
+	/**
+	 * Sleep a random time between 0 and base * 2^(attempt-1), capped ("full jitter").
+	 */
+	private void pause(int attempt, RuntimeException conflict) {
+		long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw conflict;
+		}
+	}
+
+	/**
+	 * Contention counters of one named operation.
+	 */
+	public static class Counters {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder conflicts = new LongAdder();
+		private final LongAdder retries = new LongAdder();
+		private final LongAdder exhausted = new LongAdder();
+
+		public long getCalls() {
+			return calls.sum();
+		}
+
+		/** Attempts that failed on a version conflict. */
+		public long getConflicts() {
+			return conflicts.sum();
+		}
+
+		public long getRetries() {
+			return retries.sum();
+		}
+
+		/** Calls that still conflicted on their last attempt. */
+		public long getExhausted() {
+			return exhausted.sum();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("calls=%d, conflicts=%d, retries=%d, exhausted=%d", getCalls(), getConflicts(), getRetries(), getExhausted());
+		}
+	}
+}
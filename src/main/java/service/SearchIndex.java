@@ -0,0 +1,204 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dao.ClientDAO;
+import dao.ProduitDAO;
+import dto.ClientDTO;
+
+/**
+ * In-memory search indexes behind the search fields of the client, product and order screens.
+ * <p>
+ * {@code LIKE '%term%'} cannot use a MySQL index, so each search scanned a whole
+ * table. Client names, client addresses and product libelles are kept here in
+ * {@link TrigramIndex}es instead, built at startup and updated by the services
+ * on every create, update and delete. Product libelles are also kept in a
+ * {@link FuzzyIndex}, to suggest products despite typos. A full rebuild every
+ * {@link #REBUILD_INTERVAL_MINUTES} picks up changes made by other instances.
+ * Until the first build is done the index is cold and the services search in SQL.
+ */
+public final class SearchIndex {
+
+	public static final int REBUILD_INTERVAL_MINUTES = 10;
+
+	/** Index used by the application. */
+	public static final SearchIndex DEFAULT = new SearchIndex();
+
+	private final TrigramIndex clientNoms = new TrigramIndex();
+	private final TrigramIndex clientAdresses = new TrigramIndex();
+	private final TrigramIndex produitLibelles = new TrigramIndex();
+	private final FuzzyIndex produitLibellesFuzzy = new FuzzyIndex();
+	private volatile Map<Integer, ClientDTO> clients = new ConcurrentHashMap<>();
+	private volatile boolean warm;
+
+	/** Updates received while a rebuild is loading; replayed after it, so none is lost. */
+	private List<Runnable> updatesDuringRebuild;
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Build the indexes in the background now, then rebuild them periodically.
+	 * Does nothing if already started.
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "search-index");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::rebuild, 0, REBUILD_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * True once the indexes were built; before that the searches return null.
+	 */
+	public boolean isWarm() {
+		return warm;
+	}
+
+	/**
+	 * Rebuild in the background, e.g. after a write whose outcome is uncertain.
+	 * Does nothing if the index was not started.
+	 */
+	public void rebuildAsync() {
+		ScheduledExecutorService current;
+		synchronized (this) {
+			current = scheduler;
+		}
+		if (current != null) {
+			current.execute(this::rebuild);
+		}
+	}
+
+	/**
+	 * Reload every index from the database.
+	 */
+	public void rebuild() {
+		synchronized (this) {
+			updatesDuringRebuild = new ArrayList<>();
+		}
+		try {
+			List<ClientDTO> allClients = new ClientDAO().loadAllClientDTOs();
+			Map<Integer, String> libelles = new ProduitDAO().loadLibelles();
+			Map<Integer, String> noms = new HashMap<>();
+			Map<Integer, String> adresses = new HashMap<>();
+			Map<Integer, ClientDTO> clientsById = new ConcurrentHashMap<>();
+			for (ClientDTO client : allClients) {
+				noms.put(client.getId(), client.getNom());
+				adresses.put(client.getId(), client.getAdresse());
+				clientsById.put(client.getId(), client);
+			}
+			synchronized (this) {
+				clientNoms.replaceAll(noms);
+				clientAdresses.replaceAll(adresses);
+				produitLibelles.replaceAll(libelles);
+				produitLibellesFuzzy.replaceAll(libelles);
+				clients = clientsById;
+				updatesDuringRebuild.forEach(Runnable::run);
+				warm = true;
+			}
+		} catch (RuntimeException e) {
+			// Keep the previous content; searches stay in SQL while the index is cold
+			System.err.println("[SearchIndex] rebuild failed: " + e.getMessage());
+		} finally {
+			synchronized (this) {
+				updatesDuringRebuild = null;
+			}
+		}
+	}
+
+	/**
+	 * Clients whose name or address contains the term, ordered by name, or null if the index is cold.
+	 */
+	public List<ClientDTO> searchClients(String term) {
+		if (!warm) {
+			return null;
+		}
+		Set<Integer> ids = clientNoms.search(term);
+		ids.addAll(clientAdresses.search(term));
+		List<ClientDTO> found = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			ClientDTO client = clients.get(id);
+			if (client != null) {
+				found.add(client);
+			}
+		}
+		found.sort(Comparator.comparing((ClientDTO c) -> TrigramIndex.normalize(c.getNom())).thenComparingInt(ClientDTO::getId));
+		return found;
+	}
+
+	/**
+	 * Ids of the clients whose name contains the term, or null if the index is cold.
+	 */
+	public Set<Integer> searchClientIdsByName(String term) {
+		return warm ? clientNoms.search(term) : null;
+	}
+
+	/**
+	 * Ids of the products whose libelle contains the term, or null if the index is cold.
+	 */
+	public Set<Integer> searchProduitIds(String term) {
+		return warm ? produitLibelles.search(term) : null;
+	}
+
+	/**
+	 * Ids of the products whose libelle matches the term despite typos, best first,
+	 * or null if the index is cold.
+	 */
+	public List<Integer> searchProduitIdsFuzzy(String term, int limit) {
+		return warm ? produitLibellesFuzzy.search(term, limit) : null;
+	}
+
+	/** A client was created or changed. */
+	public void clientSaved(ClientDTO client) {
+		apply(() -> {
+			clientNoms.put(client.getId(), client.getNom());
+			clientAdresses.put(client.getId(), client.getAdresse());
+			clients.put(client.getId(), client);
+		});
+	}
+
+	/** A client was deleted. */
+	public void clientDeleted(int id) {
+		apply(() -> {
+			clientNoms.remove(id);
+			clientAdresses.remove(id);
+			clients.remove(id);
+		});
+	}
+
+	/** A product was created, or its libelle changed. */
+	public void produitSaved(int id, String libelle) {
+		apply(() -> {
+			produitLibelles.put(id, libelle);
+			produitLibellesFuzzy.put(id, libelle);
+		});
+	}
+
+	/** A product was deleted. */
+	public void produitDeleted(int id) {
+		apply(() -> {
+			produitLibelles.remove(id);
+			produitLibellesFuzzy.remove(id);
+		});
+	}
+
+	private synchronized void apply(Runnable update) {
+		update.run();
+		if (updatesDuringRebuild != null) {
+			updatesDuringRebuild.add(update);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dao.StockMovementDAO;
+
+/**
+ * Background job folding the stock ledger into the product rows.
+ * <p>
+ * Products in ledger mode record their sales as movements; left alone, the tail
+ * summed by every stock read keeps growing. This job periodically folds it into
+ * {@code qtstock}, a bounded batch per product and per pass.
+ */
+public final class StockCompactor {
+
+	public static final int DEFAULT_INTERVAL_SECONDS = 60;
+
+	/** Movements folded per product and per pass; the rest waits for the next pass. */
+	public static final int MAX_MOVEMENTS_PER_PASS = 1000;
+
+	private static ScheduledExecutorService scheduler;
+
+	private StockCompactor() {
+	}
+
+	/**
+	 * Start compacting every {@code intervalSeconds}; does nothing if already started.
+	 */
+	public static synchronized void start(int intervalSeconds) {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "stock-compactor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(StockCompactor::compactAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	public static void start() {
+		start(DEFAULT_INTERVAL_SECONDS);
+	}
+
+	public static synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Run one pass over every product with pending movements.
+	 * A failure on one product is logged and does not stop the others.
+	 * @return the number of movements folded
+	 */
+	public static int compactAll() {
+		StockMovementDAO dao = new StockMovementDAO();
+		int folded = 0;
+		for (Integer produitId : dao.getProduitsWithMovements()) {
+			try {
+				folded += dao.compact(produitId, MAX_MOVEMENTS_PER_PASS);
+			} catch (RuntimeException e) {
+				System.err.println("[StockCompactor] product " + produitId + ": " + e.getMessage());
+			}
+		}
+		return folded;
+	}
+}
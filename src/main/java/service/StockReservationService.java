@@ -0,0 +1,250 @@
+package service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dao.ProduitDAO;
+import dto.ProduitDTO;
+
+/**
+ * Short-lived stock reservations held by orders being entered.
+ * <p>
+ * Each order form (a draft, identified by a string) reserves the quantities of
+ * its lines as they are added. A reservation only succeeds if the stock known
+ * for the product, minus what the other drafts already hold, covers it; two
+ * windows can therefore no longer both accept the last units. The check is made
+ * in memory under one of {@link #STRIPES} locks chosen by product id, so drafts
+ * working on different products rarely wait on each other.
+ * <p>
+ * The known stock is read from the database the first time a product is
+ * reserved and again once it is older than {@code stockTtlMillis}. Drafts that
+ * are neither saved nor cancelled expire after {@code draftTtlMillis} without
+ * activity. The database stays the authority: saving the order still takes the
+ * stock out with a checked update, then {@link #commit(String)} drops the
+ * draft's reservations and the stock of its products is read again.
+ */
+public final class StockReservationService {
+
+	/** Number of locks; product ids are spread over them. */
+	public static final int STRIPES = 64;
+
+	/** Instance used by the application: drafts expire after 15 minutes, stock is re-read after 30 s. */
+	public static final StockReservationService DEFAULT = new StockReservationService(15 * 60_000L, 30_000L);
+
+	/** Reservations of one product; guarded by the product's stripe. */
+	private static final class ProductReservations {
+		int stock;
+		long loadedAt;
+		int reserved;
+		final Map<String, Integer> byDraft = new HashMap<>();
+	}
+
+	/** Products a draft holds reservations on, and when it expires. */
+	private static final class Draft {
+		volatile long expiresAt;
+		final Set<Integer> produits = ConcurrentHashMap.newKeySet();
+	}
+
+	private final long draftTtlMillis;
+	private final long stockTtlMillis;
+	private final Object[] locks = new Object[STRIPES];
+	private final Map<Integer, ProductReservations> products = new ConcurrentHashMap<>();
+	private final Map<String, Draft> drafts = new ConcurrentHashMap<>();
+
+	public StockReservationService(long draftTtlMillis, long stockTtlMillis) {
+		this.draftTtlMillis = draftTtlMillis;
+		this.stockTtlMillis = stockTtlMillis;
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new Object();
+		}
+		DraftSweeper.schedule(draftTtlMillis, this::releaseExpired);
+	}
+
+	/**
+	 * Reserve {@code quantity} more units of a product for a draft.
+	 * @return false, reserving nothing, if the stock not held by other drafts is too low
+	 *         or the product does not exist
+	 * @throws jakarta.persistence.PersistenceException if the stock could not be read
+	 */
+	public boolean reserve(String draftId, int produitId, int quantity) {
+		if (quantity <= 0) {
+			return quantity == 0;
+		}
+		ProductReservations product = knownStock(produitId);
+		if (product == null) {
+			return false;
+		}
+		// Only once the stock is known: a failed lookup leaves no draft behind
+		Draft draft = drafts.computeIfAbsent(draftId, id -> new Draft());
+		draft.expiresAt = System.currentTimeMillis() + draftTtlMillis;
+		synchronized (lockFor(produitId)) {
+			dropExpired(product);
+			if (product.stock - product.reserved < quantity) {
+				return false;
+			}
+			product.reserved += quantity;
+			product.byDraft.merge(draftId, quantity, Integer::sum);
+			draft.produits.add(produitId);
+			return true;
+		}
+	}
+
+	/**
+	 * Give back {@code quantity} units reserved by a draft, e.g. when a line is removed.
+	 */
+	public void release(String draftId, int produitId, int quantity) {
+		ProductReservations product = products.get(produitId);
+		if (product == null) {
+			return;
+		}
+		synchronized (lockFor(produitId)) {
+			Integer held = product.byDraft.get(draftId);
+			if (held == null) {
+				return;
+			}
+			int released = Math.min(held, quantity);
+			product.reserved -= released;
+			if (held == released) {
+				product.byDraft.remove(draftId);
+			} else {
+				product.byDraft.put(draftId, held - released);
+			}
+		}
+	}
+
+	/**
+	 * Drop every reservation of a draft, e.g. when its form is closed without saving.
+	 */
+	public void releaseAll(String draftId) {
+		Draft draft = drafts.remove(draftId);
+		if (draft == null) {
+			return;
+		}
+		for (Integer produitId : draft.produits) {
+			ProductReservations product = products.get(produitId);
+			if (product != null) {
+				synchronized (lockFor(produitId)) {
+					Integer held = product.byDraft.remove(draftId);
+					if (held != null) {
+						product.reserved -= held;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reconcile after the draft was saved (or failed to save): its reservations are
+	 * dropped and the stock of its products will be read again from the database.
+	 */
+	public void commit(String draftId) {
+		Draft draft = drafts.get(draftId);
+		releaseAll(draftId);
+		if (draft != null) {
+			for (Integer produitId : draft.produits) {
+				invalidate(produitId);
+			}
+		}
+	}
+
+	/**
+	 * Forget the known stock of a product, so the next reservation reads it again.
+	 */
+	public void invalidate(int produitId) {
+		ProductReservations product = products.get(produitId);
+		if (product != null) {
+			synchronized (lockFor(produitId)) {
+				product.loadedAt = 0;
+			}
+		}
+	}
+
+	/**
+	 * Stock of a product not held by any draft; 0 if the product does not exist.
+	 * @throws jakarta.persistence.PersistenceException if the stock could not be read
+	 */
+	public int available(int produitId) {
+		ProductReservations product = knownStock(produitId);
+		if (product == null) {
+			return 0;
+		}
+		synchronized (lockFor(produitId)) {
+			dropExpired(product);
+			return product.stock - product.reserved;
+		}
+	}
+
+	/**
+	 * Units of a product reserved by one draft.
+	 */
+	public int reservedBy(String draftId, int produitId) {
+		ProductReservations product = products.get(produitId);
+		if (product == null) {
+			return 0;
+		}
+		synchronized (lockFor(produitId)) {
+			return product.byDraft.getOrDefault(draftId, 0);
+		}
+	}
+
+	/**
+	 * Drop the drafts that expired. Runs periodically in the background.
+	 */
+	public void releaseExpired() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<String, Draft> entry : drafts.entrySet()) {
+			if (entry.getValue().expiresAt < now) {
+				releaseAll(entry.getKey());
+			}
+		}
+	}
+
+	private Object lockFor(int produitId) {
+		return locks[Math.floorMod(produitId, STRIPES)];
+	}
+
+	/**
+	 * Reservations of a product with a fresh enough stock, or null if the product does not exist.
+	 * The database is read outside the stripe lock, so a slow query does not block other products;
+	 * a failed read is passed on, not taken for a missing product.
+	 */
+	private ProductReservations knownStock(int produitId) {
+		ProductReservations product = products.computeIfAbsent(produitId, id -> new ProductReservations());
+		long now = System.currentTimeMillis();
+		synchronized (lockFor(produitId)) {
+			if (product.loadedAt != 0 && now - product.loadedAt < stockTtlMillis) {
+				return product;
+			}
+		}
+		ProduitDTO current = new ProduitDAO().loadDTOById(produitId);
+		if (current == null) {
+			return null;
+		}
+		synchronized (lockFor(produitId)) {
+			if (product.loadedAt < now) {
+				product.stock = current.getQtstock();
+				product.loadedAt = now;
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Drop the reservations of expired drafts on one product. Called with its stripe held.
+	 */
+	private void dropExpired(ProductReservations product) {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<String, Integer>> it = product.byDraft.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Integer> entry = it.next();
+			Draft draft = drafts.get(entry.getKey());
+			if (draft == null || draft.expiresAt < now) {
+				product.reserved -= entry.getValue();
+				it.remove();
+			}
+		}
+	}
+}
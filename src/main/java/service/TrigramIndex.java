@@ -0,0 +1,180 @@
+package service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index of the 3-character substrings (trigrams) of short texts, answering
+ * "contains" queries without scanning every text.
+ * <p>
+ * A text containing the query contains all of its trigrams, so the candidates are
+ * the intersection of their posting sets, smallest first; each candidate is then
+ * checked against the query itself. Queries shorter than a trigram scan the texts.
+ * Texts and queries are compared after {@link #normalize(String)}.
+ * <p>
+ * Thread-safe: any number of searches run together, updates take an exclusive lock.
+ */
+public final class TrigramIndex {
+
+	private static final int GRAM = 3;
+	private static final Pattern MARKS = Pattern.compile("\\p{M}");
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	private final Map<Integer, String> texts = new HashMap<>();
+	private final Map<String, Set<Integer>> postings = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Index (or re-index) the text of a document.
+	 */
+	public void put(int id, String text) {
+		String normalized = normalize(text);
+		lock.writeLock().lock();
+		try {
+			String previous = texts.put(id, normalized);
+			if (previous != null) {
+				if (previous.equals(normalized)) {
+					return;
+				}
+				unlink(id, previous);
+			}
+			for (String gram : trigrams(normalized)) {
+				postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a document from the index.
+	 */
+	public void remove(int id) {
+		lock.writeLock().lock();
+		try {
+			String previous = texts.remove(id);
+			if (previous != null) {
+				unlink(id, previous);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replace the whole content of the index. The new postings are built before the
+	 * lock is taken, so searches are only blocked for the swap.
+	 */
+	public void replaceAll(Map<Integer, String> documents) {
+		Map<Integer, String> newTexts = new HashMap<>(documents.size() * 2);
+		Map<String, Set<Integer>> newPostings = new HashMap<>();
+		for (Map.Entry<Integer, String> document : documents.entrySet()) {
+			String normalized = normalize(document.getValue());
+			newTexts.put(document.getKey(), normalized);
+			for (String gram : trigrams(normalized)) {
+				newPostings.computeIfAbsent(gram, key -> new HashSet<>()).add(document.getKey());
+			}
+		}
+		lock.writeLock().lock();
+		try {
+			texts.clear();
+			texts.putAll(newTexts);
+			postings.clear();
+			postings.putAll(newPostings);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Ids of the documents whose text contains the query (ignoring case and accents).
+	 * An empty query matches every document.
+	 */
+	public Set<Integer> search(String query) {
+		String normalized = normalize(query);
+		lock.readLock().lock();
+		try {
+			if (normalized.length() < GRAM) {
+				Set<Integer> found = new HashSet<>();
+				for (Map.Entry<Integer, String> text : texts.entrySet()) {
+					if (text.getValue().contains(normalized)) {
+						found.add(text.getKey());
+					}
+				}
+				return found;
+			}
+			List<Set<Integer>> sets = new ArrayList<>();
+			for (String gram : trigrams(normalized)) {
+				Set<Integer> posting = postings.get(gram);
+				if (posting == null) {
+					return new HashSet<>();
+				}
+				sets.add(posting);
+			}
+			sets.sort(Comparator.comparingInt(Set::size));
+			Set<Integer> found = new HashSet<>();
+			for (Integer id : sets.get(0)) {
+				if (texts.get(id).contains(normalized)) {
+					found.add(id);
+				}
+			}
+			return found;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of documents indexed.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return texts.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Form under which texts are indexed and compared: lower case, without accents,
+	 * with single spaces (as MySQL's default accent- and case-insensitive collation sees them).
+	 */
+	public static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		return SPACES.matcher(stripped.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+	}
+
+	private void unlink(int id, String text) {
+		for (String gram : trigrams(text)) {
+			Set<Integer> posting = postings.get(gram);
+			if (posting != null) {
+				posting.remove(id);
+				if (posting.isEmpty()) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+
+	private static Set<String> trigrams(String text) {
+		Set<String> grams = new HashSet<>();
+		for (int i = 0; i + GRAM <= text.length(); i++) {
+			grams.add(text.substring(i, i + GRAM));
+		}
+		return grams;
+	}
+}
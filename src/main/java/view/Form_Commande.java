@@ -20,6 +20,7 @@ import dto.CommandeDTO;
 import dto.ProduitDTO;
 import dto.Ligne_CommandeDTO;
 import exception.ClientNotFoundException;
+import exception.InsufficientStockException;
 
 import java.awt.Color;
 import java.awt.Font;
@@ -67,6 +68,8 @@ public class Form_Commande extends JFrame {
 	private JTable table_1;
 	private JTextField textField_8;
 	private JFormattedTextField formattedTextField;
+	/** Brouillon de la commande en cours de saisie. */
+	private CommandeDTO commande;
 	private void remplircombo() {
 		comboBox.removeAllItems();
 		comboBox.addItem("Sélectionner un produit");
@@ -101,9 +104,15 @@ public class Form_Commande extends JFrame {
 
 			@Override
 			public void windowOpened(WindowEvent e) {
-				CommandeDTO dto=new CommandeController().createCommande();	
+				commande=new CommandeController().createCommande();	
 				remplircombo();
 			}
+
+			@Override
+			public void windowClosing(WindowEvent e) {
+				// Libère le stock réservé par la commande en cours
+				if(commande!=null) new CommandeController().abandonnerCommande(commande.getDraftId());
+			}
 			
 		});
 		setTitle("Gestion de Commandes");
@@ -139,7 +148,7 @@ public class Form_Commande extends JFrame {
 				if(!textField_1.getText().equals("")) {
 				try{ClientDTO dto=new ClientController().getClientDTO(Integer.valueOf(textField_1.getText()));
 				 textField_2.setText(dto.getNom()); textField_3.setText(String.valueOf(dto.getCapital())); textField_4.setText(dto.getAdresse());
-				new CommandeController().associerClient(dto); 
+				new CommandeController().associerClient(commande.getDraftId(), dto); 
 				}
 				catch(ClientNotFoundException ex) {JOptionPane.showMessageDialog(null, ex.getMessage().toString(),"Message",0);}
 			}
@@ -237,13 +246,21 @@ public class Form_Commande extends JFrame {
 				{
 					
 					ProduitDTO pdto=(ProduitDTO)comboBox.getSelectedItem();
-					if(new Ligne_commandeController().exists(pdto))
+					if(new Ligne_commandeController().exists(commande.getDraftId(), pdto))
 						JOptionPane.showMessageDialog(null, "Produit déjà ajouté à votre commande!","Message",1);
 					else 
 					{
 						int qt=Integer.valueOf(textField_5.getText());
 						
-						Ligne_CommandeDTO ligne=new Ligne_commandeController().newLigne(qt, pdto);
+						Ligne_CommandeDTO ligne;
+						try {
+							ligne=new Ligne_commandeController().newLigne(commande.getDraftId(), qt, pdto);
+						}
+						catch(RuntimeException ex) {
+							ex.printStackTrace();
+							JOptionPane.showMessageDialog(null, "Stock non disponible : " + ex.getMessage(),"Message",0);
+							return;
+						}
 						if(ligne!=null) {
 						Vector<Object> row=new Vector<Object>();
 						row.add(ligne.getProduit().getId());
@@ -253,8 +270,8 @@ public class Form_Commande extends JFrame {
 						row.add(ligne.getSous_total());
 						model.addRow(row);
 						
-						new CommandeController().ajouterLigne(ligne);
-						textField_8.setText(String.valueOf(new CommandeController().getCommande().getTotal()));
+						new CommandeController().ajouterLigne(commande.getDraftId(), ligne);
+						textField_8.setText(String.valueOf(commande.getTotal()));
 						}
 						else
 							JOptionPane.showMessageDialog(null,"Quantité insuffisante en stocl!","Attention" ,0);
@@ -329,7 +346,7 @@ public class Form_Commande extends JFrame {
 						Date date = null;
 						try {
 							date = formatter.parse(formattedTextField.getText());
-							new CommandeController().getCommande().setDatecmd(date);
+							commande.setDatecmd(date);
 							System.out.println("=====================>"+date);
 							} 
 							catch (ParseException e1) 
@@ -337,11 +354,22 @@ public class Form_Commande extends JFrame {
 								// TODO Auto-generated catch block
 								e1.printStackTrace();
 							}
-						ctr.saveCommande(ctr.getCommande());
+						try {
+							// Le stock est décrémenté dans la même transaction que la commande
+							ctr.saveCommande(commande);
+						}
+						catch(InsufficientStockException ex) {
+							JOptionPane.showMessageDialog(null, "Stock insuffisant pour le produit " + ex.getProduitId() + " !","Message",0);
+							return;
+						}
+						catch(RuntimeException ex) {
+							ex.printStackTrace();
+							JOptionPane.showMessageDialog(null, "Commande non enregistrée : " + ex.getMessage(),"Message",0);
+							return;
+						}
 						JOptionPane.showMessageDialog(null, "Commande est enregistré...","Succés",1);
-						new ProduitController().decrease_stock();
 						remplircombo();
-						new CommandeController().initialiserCommande();
+						commande=new CommandeController().initialiserCommande(commande.getDraftId());
 						formattedTextField.setValue(null);
 						textField_1.setText("");
 						textField_2.setText("");
@@ -377,7 +405,7 @@ public class Form_Commande extends JFrame {
 				Date date = null;
 				try {
 					date = formatter.parse(formattedTextField.getText());
-					new CommandeController().getCommande().setDatecmd(date);
+					commande.setDatecmd(date);
 					System.out.println("=====================>"+date);
 				} catch (ParseException e1) {
 					// TODO Auto-generated catch block
@@ -1,5 +1,11 @@
 package view;
 
+import dao.HibernateUtil;
+import service.ProduitCatalogCache;
+import service.SearchIndex;
+import service.LignePrixBackfill;
+import service.ClientNomBackfill;
+import service.StockCompactor;
 import view.utils.UIThemeManager;
 import view.panels.DashboardPanel;
 import view.panels.ClientPanel;
@@ -21,6 +27,19 @@ public class Form_Main extends JFrame {
 	 * Launch the application.
 	 */
 	public static void main(String[] args) {
+		// Build the SessionFactory in the background while the frame is shown
+		HibernateUtil.startBootstrap();
+		// Fold the stock ledger of high-volume products into their rows
+		StockCompactor.start();
+		// Price the order lines saved before prices were recorded on them
+		LignePrixBackfill.start();
+		// Copy the client name onto the commands saved before it was copied on them
+		ClientNomBackfill.start();
+		// Load the product catalog used by the order forms
+		ProduitCatalogCache.DEFAULT.refreshAsync();
+		// Build the in-memory search indexes behind the search fields
+		SearchIndex.DEFAULT.start();
+
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
 				try {
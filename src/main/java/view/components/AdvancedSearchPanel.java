@@ -361,9 +361,20 @@ public class AdvancedSearchPanel extends JPanel {
     }
 
     /**
-     * Clear all filter fields.
+     * Clear all filter fields and notify the listener.
      */
     public void clearAllFilters() {
+        clearAll();
+        
+        if (searchListener != null) {
+            searchListener.onClear();
+        }
+    }
+
+    /**
+     * Clear all filter fields without notifying the listener.
+     */
+    public void clearAll() {
         searchField.setText("");
         minCapitalField.setText("");
         maxCapitalField.setText("");
@@ -374,9 +385,9 @@ public class AdvancedSearchPanel extends JPanel {
         dateFromField.setText("");
         dateToField.setText("");
         resultCountLabel.setText("");
-        
-        if (searchListener != null) {
-            searchListener.onClear();
+        // Clearing the fields scheduled a search; the caller reloads instead
+        if (debounceTimer != null) {
+            debounceTimer.stop();
         }
     }
 
@@ -6,16 +6,23 @@ import bo.Ligne_Commande;
 import bo.Produit;
 import controller.ClientController;
 import controller.CommandeController;
+import controller.Ligne_commandeController;
 import controller.ProduitController;
 import dto.ClientDTO;
 import dto.CommandeDTO;
 import dto.ProduitDTO;
+import exception.InsufficientStockException;
 import net.miginfocom.swing.MigLayout;
+import view.utils.LatestSearch;
 import view.utils.UIThemeManager;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -24,6 +31,13 @@ public class CommandeFormDialog extends JDialog {
     private final CommandeController controller = new CommandeController();
     private final ClientController clientController = new ClientController();
     private final ProduitController produitController = new ProduitController();
+
+    /** Products listed at most in the picker for a search term. */
+    private static final int MAX_SUGGESTIONS = 50;
+    private final Ligne_commandeController ligneController = new Ligne_commandeController();
+
+    /** Holds the stock reserved by the lines of this form until it is saved or closed. */
+    private final String draftId = controller.createCommande().getDraftId();
     
     private final JSpinner dateSpinner = new JSpinner(new SpinnerDateModel());
     private final JComboBox<ClientDTO> clientCombo = new JComboBox<>();
@@ -172,7 +186,8 @@ public class CommandeFormDialog extends JDialog {
     
     private void loadProducts() {
         try {
-            availableProducts = produitController.getAllProduits();
+            // Shared in-memory catalog: opening the form does not query the database
+            availableProducts = produitController.getCatalogue();
             if (availableProducts == null) {
                 availableProducts = new ArrayList<>();
             }
@@ -191,25 +206,55 @@ public class CommandeFormDialog extends JDialog {
         
         // Show product selection dialog
         JDialog dialog = new JDialog(this, "Add Product", true);
-        dialog.setLayout(new MigLayout("fill, insets 15", "[grow]", "[][][]"));
+        dialog.setLayout(new MigLayout("fill, insets 15", "[grow]", "[][][][]"));
         
         JComboBox<ProduitDTO> productCombo = new JComboBox<>();
-        for (ProduitDTO product : availableProducts) {
-            if (product.getQtstock() > 0) { // Only show products in stock
-                productCombo.addItem(product);
+        fillProductCombo(productCombo, availableProducts);
+        
+        // Narrow the list as the clerk types; a mistyped name still finds the closest products.
+        // Until the search index is loaded the suggestions come from the database,
+        // so they are looked up in the background
+        JTextField productSearch = new JTextField();
+        LatestSearch suggestionLookup = new LatestSearch();
+        productSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { filterProducts(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { filterProducts(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { filterProducts(); }
+            
+            private void filterProducts() {
+                String term = productSearch.getText().trim();
+                if (term.isEmpty()) {
+                    suggestionLookup.cancel();
+                    fillProductCombo(productCombo, availableProducts);
+                    return;
+                }
+                suggestionLookup.submit(() -> produitController.suggestProduits(term, MAX_SUGGESTIONS),
+                        suggestions -> fillProductCombo(productCombo, suggestions),
+                        ex -> System.err.println("Error suggesting products: " + ex.getMessage()));
             }
-        }
+        });
         
         JSpinner quantitySpinner = new JSpinner(new SpinnerNumberModel(1, 1, 9999, 1));
         JLabel stockLabel = new JLabel("Available: 0");
         
-        // Update stock label when product changes
+        // Update stock label when product changes; an expired stock entry is read
+        // again from the database, so the lookup runs in the background
+        LatestSearch stockLookup = new LatestSearch();
         productCombo.addActionListener(e -> {
             ProduitDTO selected = (ProduitDTO) productCombo.getSelectedItem();
-            if (selected != null) {
-                stockLabel.setText("Available: " + selected.getQtstock());
-                ((SpinnerNumberModel) quantitySpinner.getModel()).setMaximum(selected.getQtstock());
+            if (selected == null) {
+                stockLookup.cancel();
+                return;
             }
+            stockLabel.setText("Available: ...");
+            // Stock not already reserved by other open orders
+            stockLookup.submit(() -> ligneController.disponible(selected), available -> {
+                stockLabel.setText("Available: " + available);
+                ((SpinnerNumberModel) quantitySpinner.getModel()).setMaximum(Math.max(1, available));
+            }, ex -> stockLabel.setText("Available: ?"));
         });
         
         // Trigger initial update
@@ -217,6 +262,8 @@ public class CommandeFormDialog extends JDialog {
             productCombo.setSelectedIndex(0);
         }
         
+        dialog.add(new JLabel("Search:"));
+        dialog.add(productSearch, "grow, wrap");
         dialog.add(new JLabel("Product:"));
         dialog.add(productCombo, "grow, wrap");
         dialog.add(new JLabel("Quantity:"));
@@ -230,24 +277,60 @@ public class CommandeFormDialog extends JDialog {
             ProduitDTO selectedProduct = (ProduitDTO) productCombo.getSelectedItem();
             int quantity = (Integer) quantitySpinner.getValue();
             
-            if (selectedProduct != null) {
-                if (quantity > selectedProduct.getQtstock()) {
-                    JOptionPane.showMessageDialog(dialog, 
-                        "Insufficient stock! Available: " + selectedProduct.getQtstock(), 
-                        "Stock Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-                
-                // Add to order items
-                LineItem item = new LineItem(selectedProduct, quantity);
-                orderItems.add(item);
-                updateLineItemsTable();
-                dialog.dispose();
+            if (selectedProduct == null) {
+                return;
             }
+            // The reservation may read the stock from the database: keep it off the EDT
+            okButton.setEnabled(false);
+            new SwingWorker<Integer, Void>() {
+                /** Null if the quantity was reserved, otherwise the stock available. */
+                @Override
+                protected Integer doInBackground() {
+                    return ligneController.reserver(draftId, selectedProduct, quantity)
+                            ? null : ligneController.disponible(selectedProduct);
+                }
+
+                @Override
+                protected void done() {
+                    okButton.setEnabled(true);
+                    Integer available;
+                    try {
+                        available = get();
+                    } catch (Exception ex) {
+                        JOptionPane.showMessageDialog(dialog, "Error reserving stock: " + ex.getMessage(),
+                            "Stock Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    if (available != null) {
+                        JOptionPane.showMessageDialog(dialog, 
+                            "Insufficient stock! Available: " + available, 
+                            "Stock Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    if (!dialog.isDisplayable()) {
+                        // Closed meanwhile: the line is not added, give its stock back
+                        ligneController.liberer(draftId, selectedProduct, quantity);
+                        return;
+                    }
+                    
+                    // Add to order items
+                    LineItem item = new LineItem(selectedProduct, quantity);
+                    orderItems.add(item);
+                    updateLineItemsTable();
+                    dialog.dispose();
+                }
+            }.execute();
         });
         
         JButton cancelBtn = new JButton("Cancel");
         cancelBtn.addActionListener(e -> dialog.dispose());
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                suggestionLookup.cancel();
+                stockLookup.cancel();
+            }
+        });
         
         JPanel btnPanel = new JPanel(new MigLayout("", "push[][]", ""));
         btnPanel.add(okButton);
@@ -259,6 +342,15 @@ public class CommandeFormDialog extends JDialog {
         dialog.setVisible(true);
     }
     
+    private static void fillProductCombo(JComboBox<ProduitDTO> productCombo, List<ProduitDTO> products) {
+        productCombo.removeAllItems();
+        for (ProduitDTO product : products) {
+            if (product.getQtstock() > 0) { // Only show products in stock
+                productCombo.addItem(product);
+            }
+        }
+    }
+    
     private void removeLineItem() {
         int selectedRow = lineItemsTable.getSelectedRow();
         if (selectedRow == -1) {
@@ -267,7 +359,8 @@ public class CommandeFormDialog extends JDialog {
             return;
         }
         
-        orderItems.remove(selectedRow);
+        LineItem removed = orderItems.remove(selectedRow);
+        ligneController.liberer(draftId, removed.product, removed.quantity);
         updateLineItemsTable();
     }
     
@@ -321,18 +414,6 @@ public class CommandeFormDialog extends JDialog {
             return;
         }
         
-        // Validate stock availability again before saving
-        for (LineItem item : orderItems) {
-            ProduitDTO currentProduct = produitController.getProduitDTO(item.product.getId());
-            if (currentProduct.getQtstock() < item.quantity) {
-                JOptionPane.showMessageDialog(this, 
-                    "Insufficient stock for " + item.product.getLibelle() + 
-                    "! Available: " + currentProduct.getQtstock(), 
-                    "Stock Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-        }
-
         try {
             Commande commande = new Commande();
             
@@ -368,26 +449,40 @@ public class CommandeFormDialog extends JDialog {
             }
             commande.setLignes(lignes);
 
-            controller.saveCommandeEntity(commande);
-            
-            // Decrease stock for each product
-            for (LineItem item : orderItems) {
-                ProduitDTO product = produitController.getProduitDTO(item.product.getId());
-                product.setQtstock(product.getQtstock() - item.quantity);
-                
-                Produit produitEntity = new Produit();
-                produitEntity.setId(product.getId());
-                produitEntity.setLibelle(product.getLibelle());
-                produitEntity.setPrix(product.getPrix());
-                produitEntity.setQtstock(product.getQtstock());
-                
-                produitController.saveProduit(produitEntity);
-            }
+            // A new order takes its quantities out of stock in the same transaction
+            controller.saveCommandeEntity(commande, draftId);
             
             saved = true;
             JOptionPane.showMessageDialog(this, "Order saved successfully!", 
                 "Success", JOptionPane.INFORMATION_MESSAGE);
             dispose();
+        } catch (InsufficientStockException ex) {
+            String libelle = orderItems.stream()
+                .filter(item -> item.product.getId() == ex.getProduitId())
+                .map(item -> item.product.getLibelle())
+                .findFirst()
+                .orElse("product " + ex.getProduitId());
+            // The stock is read again from the database: keep it off the EDT
+            new SwingWorker<ProduitDTO, Void>() {
+                @Override
+                protected ProduitDTO doInBackground() {
+                    return produitController.getProduitDTO(ex.getProduitId());
+                }
+
+                @Override
+                protected void done() {
+                    String available;
+                    try {
+                        ProduitDTO currentProduct = get();
+                        available = String.valueOf(currentProduct != null ? currentProduct.getQtstock() : 0);
+                    } catch (Exception readError) {
+                        available = "?";
+                    }
+                    JOptionPane.showMessageDialog(CommandeFormDialog.this, 
+                        "Insufficient stock for " + libelle + "! Available: " + available, 
+                        "Stock Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }.execute();
         } catch (Exception ex) {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error saving order: " + ex.getMessage(),
@@ -395,6 +490,15 @@ public class CommandeFormDialog extends JDialog {
         }
     }
 
+    /**
+     * Release the stock reserved by this form; a no-op once the order is saved.
+     */
+    @Override
+    public void dispose() {
+        controller.abandonnerCommande(draftId);
+        super.dispose();
+    }
+
     public boolean isSaved() {
         return saved;
     }
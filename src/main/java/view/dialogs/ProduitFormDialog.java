@@ -14,6 +14,7 @@ public class ProduitFormDialog extends JDialog {
     private final JTextField libelleField = new JTextField(20);
     private final JTextField prixField = new JTextField(20);
     private final JTextField stockField = new JTextField(20);
+    private final JCheckBox ledgerStockBox = new JCheckBox("High volume (stock ledger)");
     private final JButton saveButton = new JButton("Save");
     private final JButton cancelButton = new JButton("Cancel");
     private ProduitDTO currentDto;
@@ -28,7 +29,7 @@ public class ProduitFormDialog extends JDialog {
 
     private void initializeUI() {
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
-        setSize(400, 300);
+        setSize(400, 330);
         setLocationRelativeTo(getParent());
         setResizable(false);
 
@@ -42,6 +43,10 @@ public class ProduitFormDialog extends JDialog {
         addFormField(contentPane, "Name:", libelleField);
         addFormField(contentPane, "Price:", prixField);
         addFormField(contentPane, "Stock:", stockField);
+        ledgerStockBox.setBackground(UIThemeManager.COLOR_BACKGROUND);
+        ledgerStockBox.setForeground(UIThemeManager.COLOR_TEXT);
+        ledgerStockBox.setToolTipText("Record sales as stock movements instead of locking the product row");
+        contentPane.add(ledgerStockBox, "skip, wrap");
 
         // Buttons
         JPanel buttonPanel = new JPanel(new MigLayout("insets 0, gap 10", "push[][]push", ""));
@@ -76,6 +81,7 @@ public class ProduitFormDialog extends JDialog {
             libelleField.setText(currentDto.getLibelle() != null ? currentDto.getLibelle() : "");
             prixField.setText(String.valueOf(currentDto.getPrix()));
             stockField.setText(String.valueOf(currentDto.getQtstock()));
+            ledgerStockBox.setSelected(currentDto.isLedgerStock());
         }
     }
 
@@ -86,14 +92,23 @@ public class ProduitFormDialog extends JDialog {
 
         try {
             Produit produit = new Produit();
-            if (currentDto != null && currentDto.getId() > 0) {
-                produit.setId(currentDto.getId());
-            }
             produit.setLibelle(libelleField.getText().trim());
             produit.setPrix(Float.parseFloat(prixField.getText().trim()));
             produit.setQtstock(Integer.parseInt(stockField.getText().trim()));
+            produit.setLedgerStock(ledgerStockBox.isSelected());
 
-            controller.saveProduit(produit);
+            if (currentDto != null && currentDto.getId() > 0) {
+                // Only the fields changed in this form are written over the current product
+                ProduitDTO edited = new ProduitDTO(currentDto.getId(), produit.getLibelle(), produit.getPrix(), produit.getQtstock());
+                edited.setLedgerStock(produit.isLedgerStock());
+                if (!controller.modifierProduit(currentDto, edited)) {
+                    JOptionPane.showMessageDialog(this, "This product no longer exists",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+            } else {
+                controller.saveProduit(produit);
+            }
             saved = true;
             dispose();
         } catch (NumberFormatException ex) {
@@ -3,7 +3,10 @@ package view.panels;
 import view.utils.UIThemeManager;
 import view.utils.ExportUtil;
 import view.utils.ImportUtil;
-import view.components.SearchToolbar;
+import view.utils.PagedTableModel;
+import view.utils.LatestSearch;
+import view.utils.IncrementalFilter;
+import view.components.AdvancedSearchPanel;
 import view.dialogs.ClientFormDialog;
 import view.dialogs.CsvImportDialog;
 import controller.ClientController;
@@ -11,10 +14,12 @@ import dto.ClientDTO;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Client management panel with search and table display.
@@ -22,12 +27,17 @@ import java.util.List;
  */
 public class ClientPanel extends JPanel {
 
-    private SearchToolbar searchToolbar;
+    private AdvancedSearchPanel searchPanel;
     private JTable clientTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<ClientDTO> tableModel;
     private ClientController clientController;
-    private List<ClientDTO> allClients;
-    private List<ClientDTO> filteredClients;
+    private long totalClients;
+    private final LatestSearch latestSearch = new LatestSearch();
+    /** Whole table, when it is small enough to be searched without the database. */
+    private final IncrementalFilter<ClientDTO> memoryFilter = new IncrementalFilter<>(
+            Comparator.comparing(ClientDTO::getNom, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)),
+            ClientDTO::getNom, ClientDTO::getAdresse);
+    private final LatestSearch rowLoader = new LatestSearch();
 
     public ClientPanel() {
         this.clientController = new ClientController();
@@ -42,37 +52,33 @@ public class ClientPanel extends JPanel {
     private void initializeComponents() {
         setBackground(UIThemeManager.COLOR_BACKGROUND);
 
-        // Create search toolbar
-        searchToolbar = new SearchToolbar();
-        searchToolbar.setSearchListener(new SearchToolbar.SearchListener() {
+        // Create search panel: text search plus range filters evaluated by the database
+        searchPanel = new AdvancedSearchPanel(AdvancedSearchPanel.SearchMode.CLIENTS);
+        searchPanel.setSearchListener(new AdvancedSearchPanel.AdvancedSearchListener() {
             @Override
-            public void onSearch(String query, List<String> filterValues) {
-                performSearch(query);
+            public void onAdvancedSearch(Map<String, Object> filters) {
+                applyFilters(filters);
+            }
+
+            @Override
+            public void onQuickFilter(String filterName) {
+                applyFilters(quickFilter(filterName));
             }
 
             @Override
             public void onClear() {
-                if (filteredClients != null) filteredClients = allClients;
-                updateTable();
+                loadClientData();
             }
 
             @Override
             public void onRefresh() {
-                allClients = clientController.getAllClients();
-                if (allClients == null) allClients = List.of();
-                filteredClients = allClients;
-                updateTable();
+                loadClientData();
             }
         });
 
         // Create table
         String[] columnNames = {"ID", "Name", "Capital", "Address"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Phase 1: read-only tables
-            }
-        };
+        tableModel = new PagedTableModel<>(columnNames, this::toRow);
 
         clientTable = new JTable(tableModel);
         clientTable.setBackground(Color.WHITE);
@@ -106,7 +112,7 @@ public class ClientPanel extends JPanel {
             "[top]10[grow]10[bottom]"
         ));
 
-        add(searchToolbar, "cell 0 0, growx");
+        add(searchPanel, "cell 0 0, growx");
 
         JScrollPane scrollPane = new JScrollPane(clientTable);
         add(scrollPane, "cell 0 1, grow");
@@ -156,67 +162,115 @@ public class ClientPanel extends JPanel {
     }
 
     /**
-     * Load client data from controller.
+     * Count clients in the background, then let the table fetch them page by page
+     * as it scrolls, so memory stays bounded whatever the size of the table.
      */
     private void loadClientData() {
-        try {
-            allClients = clientController.getAllClients();
-            if (allClients == null) {
-                allClients = List.of();
+        // Same runner as the searches, so a late count cannot replace newer search results
+        rowLoader.cancel();
+        memoryFilter.clear();
+        latestSearch.submit(clientController::countClients, count -> {
+            totalClients = count;
+            tableModel.setSource(clientController::getClientsPage, (int) totalClients);
+            searchPanel.setResultCount((int) totalClients, (int) totalClients);
+            if (count <= IncrementalFilter.MAX_ROWS) {
+                loadForMemorySearch(count);
             }
-            filteredClients = allClients;
-            updateTable();
-        } catch (Exception e) {
+        }, e -> {
             System.err.println("Error loading clients: " + e.getMessage());
-            allClients = List.of();
-            filteredClients = List.of();
-            updateTable();
+            totalClients = 0;
+            tableModel.setRows(List.of());
             showErrorMessage("Unable to load clients. Check database connection.");
-        }
+        });
     }
 
     /**
-     * Update table display with current filtered data.
+     * Convert a client to its table row.
      */
-    private void updateTable() {
-        tableModel.setRowCount(0);
-        
-        if (filteredClients == null) {
-            filteredClients = List.of();
+    private Object[] toRow(ClientDTO client) {
+        return new Object[] {
+            client.getId(),
+            client.getNom(),
+            String.format("%.2f", client.getCapital()),
+            client.getAdresse()
+        };
+    }
+
+    /**
+     * Load the whole table in the background so that searches run in memory. The
+     * rows are only used if they match the count: otherwise the load failed or the
+     * table changed meanwhile, and searches stay in the database.
+     */
+    private void loadForMemorySearch(long count) {
+        rowLoader.submit(() -> {
+            List<ClientDTO> rows = clientController.getAllClients();
+            if (rows.size() == count) {
+                memoryFilter.setRows(rows);
+            }
+            return rows.size();
+        }, loaded -> { }, e -> memoryFilter.clear());
+    }
+
+    /**
+     * Show the clients matching the filters of the search panel. A text query alone
+     * takes the text search path; range filters are counted and then paged by the
+     * database, so the table is never loaded whole for them.
+     */
+    private void applyFilters(Map<String, Object> filters) {
+        if (filters.isEmpty()) {
+            loadClientData();
+            return;
         }
-        
-        for (ClientDTO client : filteredClients) {
-            Object[] row = {
-                client.getId(),
-                client.getNom(),
-                String.format("%.2f", client.getCapital()),
-                client.getAdresse()
-            };
-            tableModel.addRow(row);
+        if (filters.size() == 1 && filters.containsKey("query")) {
+            performSearch((String) filters.get("query"));
+            return;
         }
+        latestSearch.submit(() -> clientController.countClients(filters), count -> {
+            tableModel.setSource((after, skip, limit) -> clientController.getClientsPage(filters, after, skip, limit), count.intValue());
+            searchPanel.setResultCount(count.intValue(), (int) totalClients);
+        }, e -> {
+            System.err.println("Error filtering clients: " + e.getMessage());
+            showErrorMessage("Search failed: " + e.getMessage());
+        });
+    }
 
-        int total = (allClients != null) ? allClients.size() : 0;
-        searchToolbar.setResultCount(filteredClients.size(), total);
+    /**
+     * Filters of a quick filter button.
+     */
+    private static Map<String, Object> quickFilter(String key) {
+        Map<String, Object> filters = new HashMap<>();
+        switch (key) {
+            case "capital > 10000":
+                filters.put("minCapital", 10000.0);
+                break;
+            case "capital < 1000":
+                filters.put("maxCapital", 1000.0);
+                break;
+            default: // "all"
+                break;
+        }
+        return filters;
     }
 
     /**
      * Perform search on clients.
      */
     private void performSearch(String query) {
-        try {
-            if (query == null || query.isEmpty()) {
-                filteredClients = allClients;
-            } else {
-                filteredClients = clientController.searchClients(query);
-                if (filteredClients == null) {
-                    filteredClients = List.of();
-                }
-            }
-            updateTable();
-        } catch (Exception e) {
+        if (query == null || query.isEmpty()) {
+            loadClientData();
+            return;
+        }
+        // In the background: a newer keystroke cancels this search and its results are dropped
+        latestSearch.submit(() -> {
+            List<ClientDTO> inMemory = memoryFilter.filter(query);
+            return inMemory != null ? inMemory : clientController.searchClients(query);
+        }, results -> {
+            tableModel.setRows(results);
+            searchPanel.setResultCount(tableModel.getRowCount(), (int) totalClients);
+        }, e -> {
             System.err.println("Error searching clients: " + e.getMessage());
             showErrorMessage("Search failed: " + e.getMessage());
-        }
+        });
     }
 
     /**
@@ -230,10 +284,8 @@ public class ClientPanel extends JPanel {
      * Refresh client data from database.
      */
     public void refresh() {
-        allClients = clientController.getAllClients();
-        filteredClients = allClients;
-        updateTable();
-        searchToolbar.clearAll();
+        searchPanel.clearAll();
+        loadClientData();
     }
 
     /**
@@ -257,7 +309,11 @@ public class ClientPanel extends JPanel {
             return;
         }
         
-        int clientId = (int) tableModel.getValueAt(selectedRow, 0);
+        ClientDTO selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // row still loading
+        }
+        int clientId = selected.getId();
         ClientDTO client = clientController.getClientDTO(clientId);
         
         if (client != null) {
@@ -279,7 +335,11 @@ public class ClientPanel extends JPanel {
             return;
         }
 
-        int clientId = (int) tableModel.getValueAt(selectedRow, 0);
+        ClientDTO selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // row still loading
+        }
+        int clientId = selected.getId();
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this client?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
@@ -298,7 +358,7 @@ public class ClientPanel extends JPanel {
     private void exportData() {
         File file = ExportUtil.showSaveDialog(this, "clients_export_" + System.currentTimeMillis());
         if (file != null) {
-            if (ExportUtil.exportClientsToCSV(allClients, file)) {
+            if (ExportUtil.exportClientsToCSV(clientController.getAllClients(), file)) {
                 JOptionPane.showMessageDialog(this, "Data exported successfully to:\n" + file.getAbsolutePath(), 
                     "Export Success", JOptionPane.INFORMATION_MESSAGE);
             } else {
@@ -319,22 +379,28 @@ public class ClientPanel extends JPanel {
         
         if (dialog.isImportConfirmed()) {
             java.util.List<dto.ClientDTO> importedClients = dialog.getImportedClients();
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (dto.ClientDTO client : importedClients) {
-                try {
-                    clientController.ajouterClient(client);
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    System.err.println("Failed to import client: " + e.getMessage());
+
+            // One batched insert per chunk instead of one transaction per row
+            new SwingWorker<Integer, Void>() {
+                @Override
+                protected Integer doInBackground() {
+                    return clientController.ajouterClients(importedClients);
                 }
-            }
-            
-            String message = String.format("Import completed!\nSuccessful: %d\nFailed: %d", successCount, failCount);
-            JOptionPane.showMessageDialog(this, message, "Import Result", JOptionPane.INFORMATION_MESSAGE);
-            refresh();
+
+                @Override
+                protected void done() {
+                    int successCount = 0;
+                    try {
+                        successCount = get();
+                    } catch (Exception e) {
+                        System.err.println("Failed to import clients: " + e.getMessage());
+                    }
+                    int failCount = importedClients.size() - successCount;
+                    String message = String.format("Import completed!\nSuccessful: %d\nFailed: %d", successCount, failCount);
+                    JOptionPane.showMessageDialog(ClientPanel.this, message, "Import Result", JOptionPane.INFORMATION_MESSAGE);
+                    refresh();
+                }
+            }.execute();
         }
     }
 }
@@ -3,7 +3,10 @@ package view.panels;
 import view.utils.UIThemeManager;
 import view.utils.ExportUtil;
 import view.utils.ImportUtil;
-import view.components.SearchToolbar;
+import view.utils.PagedTableModel;
+import view.utils.LatestSearch;
+import view.utils.IncrementalFilter;
+import view.components.AdvancedSearchPanel;
 import view.dialogs.CommandeFormDialog;
 import view.dialogs.CsvImportDialog;
 import controller.CommandeController;
@@ -11,11 +14,13 @@ import dto.CommandeDTO;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Command (Order) management panel with search and table display.
@@ -23,12 +28,17 @@ import java.util.List;
  */
 public class CommandePanel extends JPanel {
 
-    private SearchToolbar searchToolbar;
+    private AdvancedSearchPanel searchPanel;
     private JTable commandeTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<CommandeDTO> tableModel;
     private CommandeController commandeController;
-    private List<CommandeDTO> allCommandes;
-    private List<CommandeDTO> filteredCommandes;
+    private long totalCommandes;
+    private final LatestSearch latestSearch = new LatestSearch();
+    /** Whole table, when it is small enough to be searched without the database. */
+    private final IncrementalFilter<CommandeDTO> memoryFilter = new IncrementalFilter<>(null,
+            commande -> commande.getClient() != null ? commande.getClient().getNom() : null);
+    private final LatestSearch rowLoader = new LatestSearch();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
 
     public CommandePanel() {
         this.commandeController = new CommandeController();
@@ -43,37 +53,33 @@ public class CommandePanel extends JPanel {
     private void initializeComponents() {
         setBackground(UIThemeManager.COLOR_BACKGROUND);
 
-        // Create search toolbar
-        searchToolbar = new SearchToolbar();
-        searchToolbar.setSearchListener(new SearchToolbar.SearchListener() {
+        // Create search panel: text search plus range filters evaluated by the database
+        searchPanel = new AdvancedSearchPanel(AdvancedSearchPanel.SearchMode.ORDERS);
+        searchPanel.setSearchListener(new AdvancedSearchPanel.AdvancedSearchListener() {
             @Override
-            public void onSearch(String query, List<String> filterValues) {
-                performSearch(query);
+            public void onAdvancedSearch(Map<String, Object> filters) {
+                applyFilters(filters);
+            }
+
+            @Override
+            public void onQuickFilter(String filterName) {
+                applyFilters(quickFilter(filterName));
             }
 
             @Override
             public void onClear() {
-                if (filteredCommandes != null) filteredCommandes = allCommandes;
-                updateTable();
+                loadCommandeData();
             }
 
             @Override
             public void onRefresh() {
-                allCommandes = commandeController.getAllCommandes();
-                if (allCommandes == null) allCommandes = List.of();
-                filteredCommandes = allCommandes;
-                updateTable();
+                loadCommandeData();
             }
         });
 
         // Create table
         String[] columnNames = {"ID", "Date", "Client", "Total"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Phase 1: read-only tables
-            }
-        };
+        tableModel = new PagedTableModel<>(columnNames, this::toRow);
 
         commandeTable = new JTable(tableModel);
         commandeTable.setBackground(Color.WHITE);
@@ -107,7 +113,7 @@ public class CommandePanel extends JPanel {
             "[top]10[grow]10[bottom]"
         ));
 
-        add(searchToolbar, "cell 0 0, growx");
+        add(searchPanel, "cell 0 0, growx");
 
         JScrollPane scrollPane = new JScrollPane(commandeTable);
         add(scrollPane, "cell 0 1, grow");
@@ -157,72 +163,129 @@ public class CommandePanel extends JPanel {
     }
 
     /**
-     * Load commande data from controller.
+     * Count orders in the background, then let the table fetch them page by page
+     * as it scrolls, so memory stays bounded whatever the size of the table.
      */
     private void loadCommandeData() {
-        try {
-            allCommandes = commandeController.getAllCommandes();
-            if (allCommandes == null) {
-                allCommandes = List.of();
+        // Same runner as the searches, so a late count cannot replace newer search results
+        rowLoader.cancel();
+        memoryFilter.clear();
+        latestSearch.submit(commandeController::countCommandes, count -> {
+            totalCommandes = count;
+            tableModel.setSource(commandeController::getCommandesPage, (int) totalCommandes);
+            searchPanel.setResultCount((int) totalCommandes, (int) totalCommandes);
+            if (count <= IncrementalFilter.MAX_ROWS) {
+                loadForMemorySearch(count);
             }
-            filteredCommandes = allCommandes;
-            updateTable();
-        } catch (Exception e) {
-            System.err.println("Error loading commandes: " + e.getMessage());
-            allCommandes = List.of();
-            filteredCommandes = List.of();
-            updateTable();
+        }, e -> {
+            System.err.println("Error loading orders: " + e.getMessage());
+            totalCommandes = 0;
+            tableModel.setRows(List.of());
             showErrorMessage("Unable to load orders. Check database connection.");
-        }
+        });
     }
 
     /**
-     * Update table display with current filtered data.
+     * Convert a commande to its table row.
      */
-    private void updateTable() {
-        tableModel.setRowCount(0);
-        
-        if (filteredCommandes == null) {
-            filteredCommandes = List.of();
+    private Object[] toRow(CommandeDTO commande) {
+        String clientName = (commande.getClient() != null) ? commande.getClient().getNom() : "N/A";
+        String dateStr = (commande.getDatecmd() != null) ? dateFormat.format(commande.getDatecmd()) : "N/A";
+
+        return new Object[] {
+            commande.getIdcmd(),
+            dateStr,
+            clientName,
+            String.format("%.2f", commande.getTotal())
+        };
+    }
+
+    /**
+     * Load the whole table in the background so that searches run in memory. The
+     * rows are only used if they match the count: otherwise the load failed or the
+     * table changed meanwhile, and searches stay in the database.
+     */
+    private void loadForMemorySearch(long count) {
+        rowLoader.submit(() -> {
+            List<CommandeDTO> rows = commandeController.getAllCommandes();
+            if (rows.size() == count) {
+                memoryFilter.setRows(rows);
+            }
+            return rows.size();
+        }, loaded -> { }, e -> memoryFilter.clear());
+    }
+
+    /**
+     * Show the orders matching the filters of the search panel. A text query alone
+     * takes the text search path; range filters are counted and then paged by the
+     * database, so the table is never loaded whole for them.
+     */
+    private void applyFilters(Map<String, Object> filters) {
+        if (filters.isEmpty()) {
+            loadCommandeData();
+            return;
         }
-        
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        
-        for (CommandeDTO commande : filteredCommandes) {
-            String clientName = (commande.getClient() != null) ? commande.getClient().getNom() : "N/A";
-            String dateStr = (commande.getDatecmd() != null) ? dateFormat.format(commande.getDatecmd()) : "N/A";
-            
-            Object[] row = {
-                commande.getIdcmd(),
-                dateStr,
-                clientName,
-                String.format("%.2f", commande.getTotal())
-            };
-            tableModel.addRow(row);
+        if (filters.size() == 1 && filters.containsKey("query")) {
+            performSearch((String) filters.get("query"));
+            return;
         }
+        latestSearch.submit(() -> commandeController.countCommandes(filters), count -> {
+            tableModel.setSource((after, skip, limit) -> commandeController.getCommandesPage(filters, after, skip, limit), count.intValue());
+            searchPanel.setResultCount(count.intValue(), (int) totalCommandes);
+        }, e -> {
+            System.err.println("Error filtering orders: " + e.getMessage());
+            showErrorMessage("Search failed: " + e.getMessage());
+        });
+    }
 
-        int total = (allCommandes != null) ? allCommandes.size() : 0;
-        searchToolbar.setResultCount(filteredCommandes.size(), total);
+    /**
+     * Filters of a quick filter button.
+     */
+    private static Map<String, Object> quickFilter(String key) {
+        Map<String, Object> filters = new HashMap<>();
+        Calendar from = Calendar.getInstance();
+        from.set(Calendar.HOUR_OF_DAY, 0);
+        from.set(Calendar.MINUTE, 0);
+        from.set(Calendar.SECOND, 0);
+        from.set(Calendar.MILLISECOND, 0);
+        switch (key) {
+            case "week":
+                from.set(Calendar.DAY_OF_WEEK, from.getFirstDayOfWeek());
+                filters.put("dateFrom", from.getTime());
+                break;
+            case "month":
+                from.set(Calendar.DAY_OF_MONTH, 1);
+                filters.put("dateFrom", from.getTime());
+                break;
+            case "days30":
+                from.add(Calendar.DAY_OF_MONTH, -30);
+                filters.put("dateFrom", from.getTime());
+                break;
+            default: // "all"
+                break;
+        }
+        return filters;
     }
 
     /**
      * Perform search on commandes.
      */
     private void performSearch(String query) {
-        try {
-            if (query == null || query.isEmpty()) {
-                filteredCommandes = allCommandes;
-            } else {
-                filteredCommandes = commandeController.searchCommandes(query);
-                if (filteredCommandes == null) {
-                    filteredCommandes = List.of();
-                }
-            }
-            updateTable();
-        } catch (Exception e) {
-            System.err.println("Error searching commandes: " + e.getMessage());
-            showErrorMessage("Search failed: " + e.getMessage());
+        if (query == null || query.isEmpty()) {
+            loadCommandeData();
+            return;
         }
+        // In the background: a newer keystroke cancels this search and its results are dropped
+        latestSearch.submit(() -> {
+            List<CommandeDTO> inMemory = memoryFilter.filter(query);
+            return inMemory != null ? inMemory : commandeController.searchCommandes(query);
+        }, results -> {
+            tableModel.setRows(results);
+            searchPanel.setResultCount(tableModel.getRowCount(), (int) totalCommandes);
+        }, e -> {
+            System.err.println("Error searching orders: " + e.getMessage());
+            showErrorMessage("Search failed: " + e.getMessage());
+        });
     }
 
     /**
@@ -236,10 +299,8 @@ public class CommandePanel extends JPanel {
      * Refresh commande data from database.
      */
     public void refresh() {
-        allCommandes = commandeController.getAllCommandes();
-        filteredCommandes = allCommandes;
-        updateTable();
-        searchToolbar.clearAll();
+        searchPanel.clearAll();
+        loadCommandeData();
     }
 
     /**
@@ -263,7 +324,11 @@ public class CommandePanel extends JPanel {
             return;
         }
         
-        int commandeId = (int) tableModel.getValueAt(selectedRow, 0);
+        CommandeDTO selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // row still loading
+        }
+        int commandeId = selected.getIdcmd();
         // Note: CommandeController needs to implement getCommandeDTO method
         CommandeDTO commande = commandeController.getCommandeDTO(commandeId);
         
@@ -286,7 +351,11 @@ public class CommandePanel extends JPanel {
             return;
         }
 
-        int commandeId = (int) tableModel.getValueAt(selectedRow, 0);
+        CommandeDTO selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // row still loading
+        }
+        int commandeId = selected.getIdcmd();
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this order?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
@@ -305,7 +374,7 @@ public class CommandePanel extends JPanel {
     private void exportData() {
         File file = ExportUtil.showSaveDialog(this, "commandes_export_" + System.currentTimeMillis());
         if (file != null) {
-            if (ExportUtil.exportCommandesToCSV(allCommandes, file)) {
+            if (ExportUtil.exportCommandesToCSV(commandeController.getAllCommandes(), file)) {
                 JOptionPane.showMessageDialog(this, "Data exported successfully to:\n" + file.getAbsolutePath(), 
                     "Export Success", JOptionPane.INFORMATION_MESSAGE);
             } else {
@@ -326,22 +395,28 @@ public class CommandePanel extends JPanel {
         
         if (dialog.isImportConfirmed()) {
             java.util.List<dto.CommandeDTO> importedOrders = dialog.getImportedOrders();
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (dto.CommandeDTO commande : importedOrders) {
-                try {
-                    commandeController.ajouterCommande(commande);
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    System.err.println("Failed to import order: " + e.getMessage());
+
+            // One batched insert per chunk instead of one transaction per row
+            new SwingWorker<Integer, Void>() {
+                @Override
+                protected Integer doInBackground() {
+                    return commandeController.ajouterCommandes(importedOrders);
                 }
-            }
-            
-            String message = String.format("Import completed!\nSuccessful: %d\nFailed: %d", successCount, failCount);
-            JOptionPane.showMessageDialog(this, message, "Import Result", JOptionPane.INFORMATION_MESSAGE);
-            refresh();
+
+                @Override
+                protected void done() {
+                    int successCount = 0;
+                    try {
+                        successCount = get();
+                    } catch (Exception e) {
+                        System.err.println("Failed to import orders: " + e.getMessage());
+                    }
+                    int failCount = importedOrders.size() - successCount;
+                    String message = String.format("Import completed!\nSuccessful: %d\nFailed: %d", successCount, failCount);
+                    JOptionPane.showMessageDialog(CommandePanel.this, message, "Import Result", JOptionPane.INFORMATION_MESSAGE);
+                    refresh();
+                }
+            }.execute();
         }
     }
 }
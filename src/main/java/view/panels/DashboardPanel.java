@@ -1,11 +1,11 @@
 package view.panels;
 
 import view.utils.UIThemeManager;
-import controller.ClientController;
-import controller.CommandeController;
-import controller.ProduitController;
+import controller.DashboardController;
 import dto.ClientDTO;
+import dto.ClientSegmentsDTO;
 import dto.CommandeDTO;
+import dto.DashboardStatsDTO;
 import dto.ProduitDTO;
 import net.miginfocom.swing.MigLayout;
 
@@ -16,6 +16,8 @@ import java.awt.*;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Dashboard panel with business overview widgets and client segmentation.
@@ -23,9 +25,10 @@ import java.util.List;
  */
 public class DashboardPanel extends JPanel {
 
-    private ClientController clientController;
-    private CommandeController commandeController;
-    private ProduitController produitController;
+    /** Rows shown by the top clients, low stock and recent orders widgets. */
+    private static final int WIDGET_ROWS = 5;
+
+    private DashboardController dashboardController;
 
     // Stats widgets
     private JLabel totalClientsLabel;
@@ -42,11 +45,12 @@ public class DashboardPanel extends JPanel {
     private JPanel recentOrdersPanel;
 
     private NumberFormat currencyFormat;
+    private JButton refreshBtn;
+    /** Incremented on every load, so results of an older load are not shown. */
+    private int loadGeneration;
 
     public DashboardPanel() {
-        this.clientController = new ClientController();
-        this.commandeController = new CommandeController();
-        this.produitController = new ProduitController();
+        this.dashboardController = new DashboardController();
         this.currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
         
         initializeComponents();
@@ -103,7 +107,7 @@ public class DashboardPanel extends JPanel {
         titleLabel.setFont(new Font("Dialog", Font.BOLD, 20));
         headerPanel.add(titleLabel);
         
-        JButton refreshBtn = UIThemeManager.createStyledButton("Refresh");
+        refreshBtn = UIThemeManager.createStyledButton("Refresh");
         refreshBtn.addActionListener(e -> loadDashboardData());
         headerPanel.add(refreshBtn);
         
@@ -176,78 +180,73 @@ public class DashboardPanel extends JPanel {
     }
 
     /**
-     * Load all dashboard data from controllers.
+     * Load the dashboard figures from the database aggregates; only the numbers
+     * and a few rows per widget are transferred, whatever the size of the tables.
+     * The queries run concurrently and each widget is drawn as soon as its own
+     * data arrives.
      */
     public void loadDashboardData() {
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            private List<ClientDTO> clients;
-            private List<CommandeDTO> orders;
-            private List<ProduitDTO> products;
-
-            @Override
-            protected Void doInBackground() {
-                clients = clientController.getAllClients();
-                orders = commandeController.getAllCommandes();
-                products = produitController.getAllProduits();
-                return null;
+        int generation = ++loadGeneration;
+        refreshBtn.setEnabled(false);
+
+        CompletableFuture<?>[] widgets = {
+            render(dashboardController.getStats(), generation, new DashboardStatsDTO(), this::updateStats),
+            render(dashboardController.getClientSegments(), generation, new ClientSegmentsDTO(), this::updateClientSegmentation),
+            render(dashboardController.getTopClients(WIDGET_ROWS), generation, List.of(), this::updateTopClients),
+            render(dashboardController.getLowStockProduits(WIDGET_ROWS), generation, List.of(), this::updateLowStockAlerts),
+            render(dashboardController.getRecentCommandes(WIDGET_ROWS), generation, List.of(), this::updateRecentOrders)
+        };
+        CompletableFuture.allOf(widgets).whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+            if (generation == loadGeneration) {
+                refreshBtn.setEnabled(true);
             }
+        }));
+    }
 
-            @Override
-            protected void done() {
-                if (clients == null) clients = List.of();
-                if (orders == null) orders = List.of();
-                if (products == null) products = List.of();
-
-                updateStats(clients, orders, products);
-                updateClientSegmentation(clients);
-                updateTopClients(clients);
-                updateLowStockAlerts(products);
-                updateRecentOrders(orders);
+    /**
+     * Draw a widget on the EDT once its data arrives, or with the fallback if the query failed.
+     */
+    private <T> CompletableFuture<Void> render(CompletableFuture<T> data, int generation, T fallback, Consumer<T> widget) {
+        return data.handle((result, error) -> {
+            if (error != null) {
+                System.err.println("Error loading dashboard data: " + error.getMessage());
             }
-        };
-        worker.execute();
+            T value = (error != null || result == null) ? fallback : result;
+            SwingUtilities.invokeLater(() -> {
+                if (generation == loadGeneration) {
+                    widget.accept(value);
+                }
+            });
+            return null;
+        });
     }
 
-    private void updateStats(List<ClientDTO> clients, List<CommandeDTO> orders, List<ProduitDTO> products) {
-        totalClientsLabel.setText(String.valueOf(clients.size()));
-        totalOrdersLabel.setText(String.valueOf(orders.size()));
-        totalProductsLabel.setText(String.valueOf(products.size()));
-
-        // Calculate total revenue
-        double totalRevenue = orders.stream()
-            .mapToDouble(CommandeDTO::getTotal)
-            .sum();
-        totalRevenueLabel.setText(currencyFormat.format(totalRevenue));
-
-        // Calculate low stock items (stock < 10)
-        long lowStockCount = products.stream()
-            .filter(p -> p.getQtstock() < 10)
-            .count();
+    private void updateStats(DashboardStatsDTO stats) {
+        totalClientsLabel.setText(String.valueOf(stats.getClientCount()));
+        totalOrdersLabel.setText(String.valueOf(stats.getOrderCount()));
+        totalProductsLabel.setText(String.valueOf(stats.getProductCount()));
+        totalRevenueLabel.setText(currencyFormat.format(stats.getTotalRevenue()));
+
+        long lowStockCount = stats.getLowStockCount();
         lowStockLabel.setText(String.valueOf(lowStockCount));
         if (lowStockCount > 0) {
             lowStockLabel.setForeground(UIThemeManager.COLOR_WARNING);
         }
 
-        // Calculate average order value
-        double avgValue = orders.isEmpty() ? 0 : totalRevenue / orders.size();
-        avgOrderValueLabel.setText(currencyFormat.format(avgValue));
+        avgOrderValueLabel.setText(currencyFormat.format(stats.getAverageOrderValue()));
     }
 
-    private void updateClientSegmentation(List<ClientDTO> clients) {
+    private void updateClientSegmentation(ClientSegmentsDTO segments) {
         clientSegmentPanel.removeAll();
         clientSegmentPanel.setLayout(new MigLayout("fill, insets 5", "[grow]", ""));
 
-        // Segment by capital ranges
-        long highValue = clients.stream().filter(c -> c.getCapital() >= 50000).count();
-        long midValue = clients.stream().filter(c -> c.getCapital() >= 10000 && c.getCapital() < 50000).count();
-        long lowValue = clients.stream().filter(c -> c.getCapital() < 10000).count();
-
-        clientSegmentPanel.add(createSegmentBar("High Value (≥MAD50K)", highValue, clients.size(), UIThemeManager.COLOR_SUCCESS), "growx, wrap");
-        clientSegmentPanel.add(createSegmentBar("Mid Value (MAD10K-MAD50K)", midValue, clients.size(), UIThemeManager.COLOR_PRIMARY), "growx, wrap");
-        clientSegmentPanel.add(createSegmentBar("Low Value (<MAD10K)", lowValue, clients.size(), UIThemeManager.COLOR_WARNING), "growx, wrap");
+        int total = (int) segments.getTotal();
+        clientSegmentPanel.add(createSegmentBar("High Value (≥MAD50K)", segments.getHigh(), total, UIThemeManager.COLOR_SUCCESS), "growx, wrap");
+        clientSegmentPanel.add(createSegmentBar("Mid Value (MAD10K-MAD50K)", segments.getMid(), total, UIThemeManager.COLOR_PRIMARY), "growx, wrap");
+        clientSegmentPanel.add(createSegmentBar("Low Value (<MAD10K)", segments.getLow(), total, UIThemeManager.COLOR_WARNING), "growx, wrap");
 
         // Summary
-        JLabel summaryLabel = new JLabel(String.format("Total: %d clients", clients.size()));
+        JLabel summaryLabel = new JLabel(String.format("Total: %d clients", total));
         summaryLabel.setFont(new Font("Dialog", Font.ITALIC, 10));
         summaryLabel.setForeground(UIThemeManager.COLOR_SECONDARY);
         clientSegmentPanel.add(summaryLabel, "right");
@@ -288,21 +287,18 @@ public class DashboardPanel extends JPanel {
         topClientsPanel.removeAll();
         topClientsPanel.setLayout(new MigLayout("fill, insets 5", "[grow][]", ""));
 
-        // Sort by capital descending and take top 5
-        clients.stream()
-            .sorted((a, b) -> Double.compare(b.getCapital(), a.getCapital()))
-            .limit(5)
-            .forEach(client -> {
-                JLabel nameLabel = new JLabel(client.getNom());
-                nameLabel.setFont(new Font("Dialog", Font.PLAIN, 11));
-                
-                JLabel capitalLabel = new JLabel(currencyFormat.format(client.getCapital()));
-                capitalLabel.setFont(new Font("Dialog", Font.BOLD, 11));
-                capitalLabel.setForeground(UIThemeManager.COLOR_SUCCESS);
-                
-                topClientsPanel.add(nameLabel, "growx");
-                topClientsPanel.add(capitalLabel, "wrap");
-            });
+        // Already sorted by capital descending and limited by the query
+        clients.forEach(client -> {
+            JLabel nameLabel = new JLabel(client.getNom());
+            nameLabel.setFont(new Font("Dialog", Font.PLAIN, 11));
+            
+            JLabel capitalLabel = new JLabel(currencyFormat.format(client.getCapital()));
+            capitalLabel.setFont(new Font("Dialog", Font.BOLD, 11));
+            capitalLabel.setForeground(UIThemeManager.COLOR_SUCCESS);
+            
+            topClientsPanel.add(nameLabel, "growx");
+            topClientsPanel.add(capitalLabel, "wrap");
+        });
 
         if (clients.isEmpty()) {
             JLabel emptyLabel = new JLabel("No clients found");
@@ -314,17 +310,11 @@ public class DashboardPanel extends JPanel {
         topClientsPanel.repaint();
     }
 
-    private void updateLowStockAlerts(List<ProduitDTO> products) {
+    private void updateLowStockAlerts(List<ProduitDTO> lowStock) {
         lowStockPanel.removeAll();
         lowStockPanel.setLayout(new MigLayout("fill, insets 5", "[grow][]", ""));
 
-        // Filter products with stock < 10
-        List<ProduitDTO> lowStock = products.stream()
-            .filter(p -> p.getQtstock() < 10)
-            .sorted((a, b) -> Integer.compare(a.getQtstock(), b.getQtstock()))
-            .limit(5)
-            .toList();
-
+        // Already filtered, sorted by stock and limited by the query
         for (ProduitDTO product : lowStock) {
             JLabel nameLabel = new JLabel(product.getLibelle());
             nameLabel.setFont(new Font("Dialog", Font.PLAIN, 11));
@@ -358,37 +348,30 @@ public class DashboardPanel extends JPanel {
         recentOrdersPanel.removeAll();
         recentOrdersPanel.setLayout(new MigLayout("fill, insets 5", "[][grow][][]", ""));
 
-        // Sort by date descending and take recent 5
-        orders.stream()
-            .sorted((a, b) -> {
-                if (a.getDatecmd() == null) return 1;
-                if (b.getDatecmd() == null) return -1;
-                return b.getDatecmd().compareTo(a.getDatecmd());
-            })
-            .limit(5)
-            .forEach(order -> {
-                JLabel idLabel = new JLabel("#" + order.getIdcmd());
-                idLabel.setFont(new Font("Dialog", Font.BOLD, 11));
-                idLabel.setForeground(UIThemeManager.COLOR_PRIMARY);
-                
-                String clientName = order.getClient() != null ? order.getClient().getNom() : "Unknown";
-                JLabel clientLabel = new JLabel(clientName);
-                clientLabel.setFont(new Font("Dialog", Font.PLAIN, 11));
-                
-                String dateStr = order.getDatecmd() != null ? 
-                    new java.text.SimpleDateFormat("yyyy-MM-dd").format(order.getDatecmd()) : "N/A";
-                JLabel dateLabel = new JLabel(dateStr);
-                dateLabel.setFont(new Font("Dialog", Font.PLAIN, 11));
-                dateLabel.setForeground(UIThemeManager.COLOR_SECONDARY);
-                
-                JLabel totalLabel = new JLabel(currencyFormat.format(order.getTotal()));
-                totalLabel.setFont(new Font("Dialog", Font.BOLD, 11));
-                
-                recentOrdersPanel.add(idLabel);
-                recentOrdersPanel.add(clientLabel, "growx");
-                recentOrdersPanel.add(dateLabel);
-                recentOrdersPanel.add(totalLabel, "wrap");
-            });
+        // Already sorted by date descending and limited by the query
+        orders.forEach(order -> {
+            JLabel idLabel = new JLabel("#" + order.getIdcmd());
+            idLabel.setFont(new Font("Dialog", Font.BOLD, 11));
+            idLabel.setForeground(UIThemeManager.COLOR_PRIMARY);
+            
+            String clientName = order.getClient() != null ? order.getClient().getNom() : "Unknown";
+            JLabel clientLabel = new JLabel(clientName);
+            clientLabel.setFont(new Font("Dialog", Font.PLAIN, 11));
+            
+            String dateStr = order.getDatecmd() != null ? 
+                new java.text.SimpleDateFormat("yyyy-MM-dd").format(order.getDatecmd()) : "N/A";
+            JLabel dateLabel = new JLabel(dateStr);
+            dateLabel.setFont(new Font("Dialog", Font.PLAIN, 11));
+            dateLabel.setForeground(UIThemeManager.COLOR_SECONDARY);
+            
+            JLabel totalLabel = new JLabel(currencyFormat.format(order.getTotal()));
+            totalLabel.setFont(new Font("Dialog", Font.BOLD, 11));
+            
+            recentOrdersPanel.add(idLabel);
+            recentOrdersPanel.add(clientLabel, "growx");
+            recentOrdersPanel.add(dateLabel);
+            recentOrdersPanel.add(totalLabel, "wrap");
+        });
 
         if (orders.isEmpty()) {
             JLabel emptyLabel = new JLabel("No orders found");
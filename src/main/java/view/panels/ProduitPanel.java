@@ -3,7 +3,10 @@ package view.panels;
 import view.utils.UIThemeManager;
 import view.utils.ExportUtil;
 import view.utils.ImportUtil;
-import view.components.SearchToolbar;
+import view.utils.PagedTableModel;
+import view.utils.LatestSearch;
+import view.utils.IncrementalFilter;
+import view.components.AdvancedSearchPanel;
 import view.dialogs.ProduitFormDialog;
 import view.dialogs.CsvImportDialog;
 import controller.ProduitController;
@@ -11,10 +14,11 @@ import dto.ProduitDTO;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Product management panel with search and table display.
@@ -22,12 +26,15 @@ import java.util.List;
  */
 public class ProduitPanel extends JPanel {
 
-    private SearchToolbar searchToolbar;
+    private AdvancedSearchPanel searchPanel;
     private JTable produitTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<ProduitDTO> tableModel;
     private ProduitController produitController;
-    private List<ProduitDTO> allProduits;
-    private List<ProduitDTO> filteredProduits;
+    private long totalProduits;
+    private final LatestSearch latestSearch = new LatestSearch();
+    /** Whole table, when it is small enough to be searched without the database. */
+    private final IncrementalFilter<ProduitDTO> memoryFilter = new IncrementalFilter<>(null, ProduitDTO::getLibelle);
+    private final LatestSearch rowLoader = new LatestSearch();
 
     public ProduitPanel() {
         this.produitController = new ProduitController();
@@ -42,37 +49,33 @@ public class ProduitPanel extends JPanel {
     private void initializeComponents() {
         setBackground(UIThemeManager.COLOR_BACKGROUND);
 
-        // Create search toolbar
-        searchToolbar = new SearchToolbar();
-        searchToolbar.setSearchListener(new SearchToolbar.SearchListener() {
+        // Create search panel: text search plus range filters evaluated by the database
+        searchPanel = new AdvancedSearchPanel(AdvancedSearchPanel.SearchMode.PRODUCTS);
+        searchPanel.setSearchListener(new AdvancedSearchPanel.AdvancedSearchListener() {
             @Override
-            public void onSearch(String query, List<String> filterValues) {
-                performSearch(query);
+            public void onAdvancedSearch(Map<String, Object> filters) {
+                applyFilters(filters);
+            }
+
+            @Override
+            public void onQuickFilter(String filterName) {
+                applyFilters(quickFilter(filterName));
             }
 
             @Override
             public void onClear() {
-                if (filteredProduits != null) filteredProduits = allProduits;
-                updateTable();
+                loadProduitData();
             }
 
             @Override
             public void onRefresh() {
-                allProduits = produitController.getAllProduits();
-                if (allProduits == null) allProduits = List.of();
-                filteredProduits = allProduits;
-                updateTable();
+                loadProduitData();
             }
         });
 
         // Create table
         String[] columnNames = {"ID", "Name", "Price", "Stock"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Phase 1: read-only tables
-            }
-        };
+        tableModel = new PagedTableModel<>(columnNames, this::toRow);
 
         produitTable = new JTable(tableModel);
         produitTable.setBackground(Color.WHITE);
@@ -106,7 +109,7 @@ public class ProduitPanel extends JPanel {
             "[top]10[grow]10[bottom]"
         ));
 
-        add(searchToolbar, "cell 0 0, growx");
+        add(searchPanel, "cell 0 0, growx");
 
         JScrollPane scrollPane = new JScrollPane(produitTable);
         add(scrollPane, "cell 0 1, grow");
@@ -156,67 +159,118 @@ public class ProduitPanel extends JPanel {
     }
 
     /**
-     * Load produit data from controller.
+     * Count products in the background, then let the table fetch them page by page
+     * as it scrolls, so memory stays bounded whatever the size of the table.
      */
     private void loadProduitData() {
-        try {
-            allProduits = produitController.getAllProduits();
-            if (allProduits == null) {
-                allProduits = List.of();
+        // Same runner as the searches, so a late count cannot replace newer search results
+        rowLoader.cancel();
+        memoryFilter.clear();
+        latestSearch.submit(produitController::countProduits, count -> {
+            totalProduits = count;
+            tableModel.setSource(produitController::getProduitsPage, (int) totalProduits);
+            searchPanel.setResultCount((int) totalProduits, (int) totalProduits);
+            if (count <= IncrementalFilter.MAX_ROWS) {
+                loadForMemorySearch(count);
             }
-            filteredProduits = allProduits;
-            updateTable();
-        } catch (Exception e) {
-            System.err.println("Error loading produits: " + e.getMessage());
-            allProduits = List.of();
-            filteredProduits = List.of();
-            updateTable();
+        }, e -> {
+            System.err.println("Error loading products: " + e.getMessage());
+            totalProduits = 0;
+            tableModel.setRows(List.of());
             showErrorMessage("Unable to load products. Check database connection.");
-        }
+        });
     }
 
     /**
-     * Update table display with current filtered data.
+     * Convert a produit to its table row.
      */
-    private void updateTable() {
-        tableModel.setRowCount(0);
-        
-        if (filteredProduits == null) {
-            filteredProduits = List.of();
+    private Object[] toRow(ProduitDTO produit) {
+        return new Object[] {
+            produit.getId(),
+            produit.getLibelle(),
+            String.format("%.2f", produit.getPrix()),
+            produit.getQtstock()
+        };
+    }
+
+    /**
+     * Load the whole table in the background so that searches run in memory. The
+     * rows are only used if they match the count: otherwise the load failed or the
+     * table changed meanwhile, and searches stay in the database.
+     */
+    private void loadForMemorySearch(long count) {
+        rowLoader.submit(() -> {
+            List<ProduitDTO> rows = produitController.getAllProduits();
+            if (rows.size() == count) {
+                memoryFilter.setRows(rows);
+            }
+            return rows.size();
+        }, loaded -> { }, e -> memoryFilter.clear());
+    }
+
+    /**
+     * Show the products matching the filters of the search panel. A text query alone
+     * takes the text search path; range filters are counted and then paged by the
+     * database, so the table is never loaded whole for them.
+     */
+    private void applyFilters(Map<String, Object> filters) {
+        if (filters.isEmpty()) {
+            loadProduitData();
+            return;
         }
-        
-        for (ProduitDTO produit : filteredProduits) {
-            Object[] row = {
-                produit.getId(),
-                produit.getLibelle(),
-                String.format("%.2f", produit.getPrix()),
-                produit.getQtstock()
-            };
-            tableModel.addRow(row);
+        if (filters.size() == 1 && filters.containsKey("query")) {
+            performSearch((String) filters.get("query"));
+            return;
         }
+        latestSearch.submit(() -> produitController.countProduits(filters), count -> {
+            tableModel.setSource((after, skip, limit) -> produitController.getProduitsPage(filters, after, skip, limit), count.intValue());
+            searchPanel.setResultCount(count.intValue(), (int) totalProduits);
+        }, e -> {
+            System.err.println("Error filtering products: " + e.getMessage());
+            showErrorMessage("Search failed: " + e.getMessage());
+        });
+    }
 
-        int total = (allProduits != null) ? allProduits.size() : 0;
-        searchToolbar.setResultCount(filteredProduits.size(), total);
+    /**
+     * Filters of a quick filter button.
+     */
+    private static Map<String, Object> quickFilter(String key) {
+        Map<String, Object> filters = new HashMap<>();
+        switch (key) {
+            case "stock < 10":
+                filters.put("maxStock", 9);
+                break;
+            case "stock = 0":
+                filters.put("maxStock", 0);
+                break;
+            case "price > 100":
+                filters.put("minPrice", 100.0);
+                break;
+            default: // "all"
+                break;
+        }
+        return filters;
     }
 
     /**
      * Perform search on produits.
      */
     private void performSearch(String query) {
-        try {
-            if (query == null || query.isEmpty()) {
-                filteredProduits = allProduits;
-            } else {
-                filteredProduits = produitController.searchProduits(query);
-                if (filteredProduits == null) {
-                    filteredProduits = List.of();
-                }
-            }
-            updateTable();
-        } catch (Exception e) {
-            System.err.println("Error searching produits: " + e.getMessage());
-            showErrorMessage("Search failed: " + e.getMessage());
+        if (query == null || query.isEmpty()) {
+            loadProduitData();
+            return;
         }
+        // In the background: a newer keystroke cancels this search and its results are dropped
+        latestSearch.submit(() -> {
+            List<ProduitDTO> inMemory = memoryFilter.filter(query);
+            return inMemory != null ? inMemory : produitController.searchProduits(query);
+        }, results -> {
+            tableModel.setRows(results);
+            searchPanel.setResultCount(tableModel.getRowCount(), (int) totalProduits);
+        }, e -> {
+            System.err.println("Error searching products: " + e.getMessage());
+            showErrorMessage("Search failed: " + e.getMessage());
+        });
     }
 
     /**
@@ -230,10 +284,8 @@ public class ProduitPanel extends JPanel {
      * Refresh produit data from database.
      */
     public void refresh() {
-        allProduits = produitController.getAllProduits();
-        filteredProduits = allProduits;
-        updateTable();
-        searchToolbar.clearAll();
+        searchPanel.clearAll();
+        loadProduitData();
     }
 
     /**
@@ -257,7 +309,11 @@ public class ProduitPanel extends JPanel {
             return;
         }
         
-        int produitId = (int) tableModel.getValueAt(selectedRow, 0);
+        ProduitDTO selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // row still loading
+        }
+        int produitId = selected.getId();
         ProduitDTO produit = produitController.getProduitDTO(produitId);
         
         if (produit != null) {
@@ -279,7 +335,11 @@ public class ProduitPanel extends JPanel {
             return;
         }
 
-        int produitId = (int) tableModel.getValueAt(selectedRow, 0);
+        ProduitDTO selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // row still loading
+        }
+        int produitId = selected.getId();
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this product?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
@@ -298,7 +358,7 @@ public class ProduitPanel extends JPanel {
     private void exportData() {
         File file = ExportUtil.showSaveDialog(this, "products_export_" + System.currentTimeMillis());
         if (file != null) {
-            if (ExportUtil.exportProductsToCSV(allProduits, file)) {
+            if (ExportUtil.exportProductsToCSV(produitController.getAllProduits(), file)) {
                 JOptionPane.showMessageDialog(this, "Data exported successfully to:\n" + file.getAbsolutePath(), 
                     "Export Success", JOptionPane.INFORMATION_MESSAGE);
             } else {
@@ -319,22 +379,28 @@ public class ProduitPanel extends JPanel {
         
         if (dialog.isImportConfirmed()) {
             java.util.List<dto.ProduitDTO> importedProducts = dialog.getImportedProducts();
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (dto.ProduitDTO produit : importedProducts) {
-                try {
-                    produitController.ajouterProduit(produit);
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    System.err.println("Failed to import product: " + e.getMessage());
+
+            // One batched insert per chunk instead of one transaction per row
+            new SwingWorker<Integer, Void>() {
+                @Override
+                protected Integer doInBackground() {
+                    return produitController.ajouterProduits(importedProducts);
                 }
-            }
-            
-            String message = String.format("Import completed!\nSuccessful: %d\nFailed: %d", successCount, failCount);
-            JOptionPane.showMessageDialog(this, message, "Import Result", JOptionPane.INFORMATION_MESSAGE);
-            refresh();
+
+                @Override
+                protected void done() {
+                    int successCount = 0;
+                    try {
+                        successCount = get();
+                    } catch (Exception e) {
+                        System.err.println("Failed to import products: " + e.getMessage());
+                    }
+                    int failCount = importedProducts.size() - successCount;
+                    String message = String.format("Import completed!\nSuccessful: %d\nFailed: %d", successCount, failCount);
+                    JOptionPane.showMessageDialog(ProduitPanel.this, message, "Import Result", JOptionPane.INFORMATION_MESSAGE);
+                    refresh();
+                }
+            }.execute();
         }
     }
 }
@@ -0,0 +1,143 @@
+package view.utils;
+
+import service.TrigramIndex;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Searches a whole table held in memory, for tables small enough to be loaded at once.
+ * <p>
+ * A row matches when one of its searched fields contains the query, compared
+ * as the database does it (ignoring case and accents). The normalized fields
+ * are computed once, when the rows are set. When a query contains the previous
+ * one (typically: the user typed another character), only the previous results
+ * are filtered, not the whole table.
+ * <p>
+ * {@link #filter(String)} is meant to run on a background thread; the rows can be
+ * set or cleared from any thread.
+ */
+public final class IncrementalFilter<T> {
+
+    /** Tables up to this many rows are searched in memory; larger ones stay paged and searched in the database. */
+    public static final int MAX_ROWS = 20_000;
+
+    private static final class Item<T> {
+        final T row;
+        final String[] texts;
+
+        Item(T row, String[] texts) {
+            this.row = row;
+            this.texts = texts;
+        }
+    }
+
+    /** Result of the last query, with the rows it was computed from. */
+    private static final class Narrowed<T> {
+        final List<Item<T>> all;
+        final String query;
+        final List<Item<T>> items;
+
+        Narrowed(List<Item<T>> all, String query, List<Item<T>> items) {
+            this.all = all;
+            this.query = query;
+            this.items = items;
+        }
+    }
+
+    private final Comparator<T> order;
+    private final List<Function<T, String>> fields;
+    private volatile List<Item<T>> all;
+    private volatile Narrowed<T> last;
+
+    /**
+     * @param order  order of the results, as the database search returns them, or null to keep the order of the rows
+     * @param fields fields searched
+     */
+    @SafeVarargs
+    public IncrementalFilter(Comparator<T> order, Function<T, String>... fields) {
+        this.order = order;
+        // Copied element by element: the varargs array itself is never handed on
+        List<Function<T, String>> copy = new ArrayList<>(fields.length);
+        for (Function<T, String> field : fields) {
+            copy.add(field);
+        }
+        this.fields = List.copyOf(copy);
+    }
+
+    /**
+     * Search these rows from now on.
+     */
+    public void setRows(List<T> rows) {
+        List<T> sorted = rows;
+        if (order != null) {
+            sorted = new ArrayList<>(rows);
+            sorted.sort(order);
+        }
+        List<Item<T>> items = new ArrayList<>(sorted.size());
+        for (T row : sorted) {
+            String[] texts = new String[fields.size()];
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = TrigramIndex.normalize(fields.get(i).apply(row));
+            }
+            items.add(new Item<>(row, texts));
+        }
+        all = items;
+        last = null;
+    }
+
+    /**
+     * Forget the rows, e.g. when the table changed or became too large; {@link #filter(String)} then returns null.
+     */
+    public void clear() {
+        all = null;
+        last = null;
+    }
+
+    /**
+     * Rows matching the query, in result order, or null if no rows are loaded.
+     * The list returned is read-only.
+     */
+    public List<T> filter(String query) {
+        List<Item<T>> base = all;
+        if (base == null) {
+            return null;
+        }
+        String normalized = TrigramIndex.normalize(query);
+        Narrowed<T> previous = last;
+        // Rows matching a longer query are among those matching the previous one
+        List<Item<T>> candidates = previous != null && previous.all == base && normalized.contains(previous.query)
+                ? previous.items : base;
+        List<Item<T>> items = new ArrayList<>();
+        for (Item<T> item : candidates) {
+            if (matches(item, normalized)) {
+                items.add(item);
+            }
+        }
+        last = new Narrowed<>(base, normalized, items);
+        // The matches are copied once; the rows are read through them
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return items.get(index).row;
+            }
+
+            @Override
+            public int size() {
+                return items.size();
+            }
+        };
+    }
+
+    private static boolean matches(Item<?> item, String query) {
+        for (String text : item.texts) {
+            if (text.contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package view.utils;
+
+import dao.QueryCancellation;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the searches of a panel in the background, keeping only the latest one.
+ * <p>
+ * Each search gets a new generation number; its result is delivered on the EDT
+ * only if no newer search was submitted in the meantime, so the results of an
+ * old keystroke can no longer overwrite newer ones. Submitting a search also
+ * cancels the previous one: dropped if it has not started yet, its running SQL
+ * statement cancelled otherwise (see {@link QueryCancellation}).
+ * <p>
+ * {@link #submit} and {@link #cancel} must be called on the EDT.
+ */
+public final class LatestSearch {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "search-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> pending;
+    private QueryCancellation cancellation;
+
+    /**
+     * Run a search in the background, superseding the previous one.
+     *
+     * @param onResult called on the EDT with the result, unless a newer search was submitted
+     * @param onError  called on the EDT if the search failed, unless it was superseded
+     */
+    public <T> void submit(Supplier<T> search, Consumer<T> onResult, Consumer<Exception> onError) {
+        cancel();
+        long current = generation.get();
+        QueryCancellation token = new QueryCancellation();
+        cancellation = token;
+        pending = EXECUTOR.submit(() -> {
+            try {
+                T result = token.run(search);
+                SwingUtilities.invokeLater(() -> {
+                    if (generation.get() == current) {
+                        onResult.accept(result);
+                    }
+                });
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (generation.get() == current) {
+                        onError.accept(e);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancel the running search, if any; its result will be ignored.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        if (cancellation != null) {
+            cancellation.cancel();
+            cancellation = null;
+        }
+    }
+}
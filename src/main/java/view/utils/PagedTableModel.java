@@ -0,0 +1,251 @@
+package view.utils;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Read-only table model that loads its rows page by page, as the table asks for them.
+ * <p>
+ * Pages are fetched in the background with keyset pagination: the last row of a
+ * page is the cursor of the next one. Only the most recently used pages are kept,
+ * so memory stays bounded whatever the size of the table. Rows that are not
+ * loaded yet are shown empty and filled in when their page arrives. Each row is
+ * mapped to its cell values once, not for every cell painted. A page that could
+ * not be loaded is not kept: it is fetched again the next time it is shown.
+ * <p>
+ * The model can also show a plain in-memory list (e.g. search results) with
+ * {@link #setRows(List)}.
+ */
+public class PagedTableModel<T> extends AbstractTableModel {
+
+    /**
+     * Fetches rows in the model's order.
+     */
+    @FunctionalInterface
+    public interface PageSource<T> {
+        /**
+         * @param after last row before the requested ones, or null to start at the first row
+         * @param skip  rows to skip after the cursor
+         * @param limit maximum number of rows to return
+         */
+        List<T> fetch(T after, int skip, int limit);
+    }
+
+    /** Rows of a loaded page, with their cell values. */
+    private static final class Page<T> {
+        final List<T> rows;
+        final Object[][] values;
+
+        Page(List<T> rows, Object[][] values) {
+            this.rows = rows;
+            this.values = values;
+        }
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int DEFAULT_MAX_CACHED_PAGES = 10;
+
+    private final String[] columnNames;
+    private final Function<T, Object[]> rowMapper;
+    private final int pageSize;
+    private final int maxCachedPages;
+
+    private PageSource<T> source;
+    private List<T> rows;
+    /** Cell values of the in-memory rows, mapped as they are first shown. */
+    private Object[][] rowValues;
+    private int rowCount;
+    /** Incremented on every reset, so pages fetched for an older content are dropped. */
+    private int generation;
+
+    private final Map<Integer, Page<T>> pages;
+    /** Last row of each page already seen; kept after the page itself is evicted. */
+    private final TreeMap<Integer, T> cursors = new TreeMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    public PagedTableModel(String[] columnNames, Function<T, Object[]> rowMapper) {
+        this(columnNames, rowMapper, DEFAULT_PAGE_SIZE, DEFAULT_MAX_CACHED_PAGES);
+    }
+
+    public PagedTableModel(String[] columnNames, Function<T, Object[]> rowMapper, int pageSize, int maxCachedPages) {
+        this.columnNames = columnNames;
+        this.rowMapper = rowMapper;
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+                return size() > PagedTableModel.this.maxCachedPages;
+            }
+        };
+        this.rows = List.of();
+        this.rowValues = new Object[0][];
+    }
+
+    /**
+     * Show {@code rowCount} rows fetched lazily from the given source.
+     */
+    public void setSource(PageSource<T> source, int rowCount) {
+        reset();
+        this.source = source;
+        this.rowCount = rowCount;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Show the given rows, all held in memory.
+     */
+    public void setRows(List<T> rows) {
+        reset();
+        this.rows = (rows != null) ? rows : List.of();
+        this.rowValues = new Object[this.rows.size()][];
+        this.rowCount = this.rows.size();
+        fireTableDataChanged();
+    }
+
+    /**
+     * True when rows are fetched page by page rather than held in memory.
+     */
+    public boolean isPaged() {
+        return source != null;
+    }
+
+    /**
+     * Get the row at the given index, or null if its page is not loaded yet.
+     */
+    public T getRow(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rowCount) {
+            return null;
+        }
+        if (source == null) {
+            return rows.get(rowIndex);
+        }
+        Page<T> page = page(rowIndex);
+        int offset = rowIndex % pageSize;
+        return (page != null && offset < page.rows.size()) ? page.rows.get(offset) : null;
+    }
+
+    /**
+     * Loaded page holding the given row, or null (its loading is then requested).
+     */
+    private Page<T> page(int rowIndex) {
+        int number = rowIndex / pageSize;
+        Page<T> page = pages.get(number);
+        if (page == null) {
+            requestPage(number);
+        }
+        return page;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= rowCount) {
+            return null;
+        }
+        Object[] values;
+        if (source == null) {
+            values = rowValues[rowIndex];
+            if (values == null) {
+                values = rowMapper.apply(rows.get(rowIndex));
+                rowValues[rowIndex] = values;
+            }
+        } else {
+            Page<T> page = page(rowIndex);
+            int offset = rowIndex % pageSize;
+            values = (page != null && offset < page.values.length) ? page.values[offset] : null;
+        }
+        return (values != null) ? values[columnIndex] : null;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    private void reset() {
+        generation++;
+        source = null;
+        rows = List.of();
+        rowValues = new Object[0][];
+        rowCount = 0;
+        pages.clear();
+        cursors.clear();
+        loading.clear();
+    }
+
+    /**
+     * Fetch a page in the background, starting from the closest known cursor before it.
+     */
+    private void requestPage(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+        Map.Entry<Integer, T> cursor = cursors.lowerEntry(page);
+        T after = (cursor != null) ? cursor.getValue() : null;
+        int skip = (page - (cursor != null ? cursor.getKey() + 1 : 0)) * pageSize;
+        PageSource<T> pageSource = source;
+        int requestGeneration = generation;
+
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() {
+                return pageSource.fetch(after, skip, pageSize);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading.remove(page);
+                List<T> pageRows;
+                try {
+                    pageRows = get();
+                } catch (Exception e) {
+                    System.err.println("Error loading page " + page + ": " + e.getMessage());
+                    return;
+                }
+                int first = page * pageSize;
+                int last = Math.min(first + pageSize, rowCount) - 1;
+                if (pageRows.isEmpty() && first <= last) {
+                    // The DAOs return no rows when the query failed: not kept, so it is fetched again when shown
+                    System.err.println("Page " + page + " came back empty; it will be fetched again");
+                    return;
+                }
+                Object[][] values = new Object[pageRows.size()][];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rowMapper.apply(pageRows.get(i));
+                }
+                pages.put(page, new Page<>(pageRows, values));
+                if (!pageRows.isEmpty()) {
+                    cursors.put(page, pageRows.get(pageRows.size() - 1));
+                }
+                if (first <= last) {
+                    fireTableRowsUpdated(first, last);
+                }
+            }
+        }.execute();
+    }
+}
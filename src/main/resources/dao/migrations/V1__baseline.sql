@@ -0,0 +1,12 @@
+-- Schema as created by hibernate.hbm2ddl.auto=update from the original mappings,
+-- before versioned migrations: keys from AUTO_INCREMENT columns, no version columns.
+-- Not run on a database that already has these tables: it is recorded as applied instead.
+-- What the mappings gained since then comes in the later scripts.
+
+create table Client (id integer not null auto_increment, adresse varchar(255), capital float(53) not null, nom varchar(255), primary key (id)) engine=InnoDB;
+create table Commande (idcmd integer not null auto_increment, datecmd datetime(6), total float(23) not null, id integer, primary key (idcmd)) engine=InnoDB;
+create table Ligne_Commande (idligne integer not null auto_increment, quantite integer not null, idcmd integer, id integer, primary key (idligne)) engine=InnoDB;
+create table Produit (id integer not null auto_increment, libelle varchar(255), prix float(23) not null, qtstock integer not null, primary key (id)) engine=InnoDB;
+alter table Commande add constraint FKnd65tya8kx3fpvrs1vdph197u foreign key (id) references Client (id);
+alter table Ligne_Commande add constraint FKjud9p7ds6golxwm6p781btg1 foreign key (idcmd) references Commande (idcmd);
+alter table Ligne_Commande add constraint FK2d098xp2sne5p0qt82sxs9oln foreign key (id) references Produit (id);
@@ -0,0 +1,13 @@
+-- Indexes of the sorted lists, the searches and the joins.
+-- InnoDB appends the primary key to every secondary index, so (nom) also serves
+-- ORDER BY nom, id, and (datecmd) ORDER BY datecmd DESC, idcmd DESC.
+-- On the foreign key columns, MySQL drops the index it created for the constraint
+-- once one of these can be used instead.
+
+create index idx_client_nom on Client (nom);
+create index idx_produit_libelle on Produit (libelle);
+create index idx_produit_qtstock on Produit (qtstock);
+create index idx_commande_datecmd on Commande (datecmd);
+create index idx_commande_client on Commande (id);
+create index idx_ligne_commande_commande on Ligne_Commande (idcmd);
+create index idx_ligne_commande_produit on Ligne_Commande (id);
@@ -0,0 +1,9 @@
+-- Lower-case copy of the client name on each command (Commande.clientNom), so that
+-- searching commands by client name reads Commande alone instead of joining Client.
+-- The existing commands stay null here: service.ClientNomBackfill fills them in small
+-- chunks in the background, instead of one UPDATE locking the whole table; until then
+-- the searches fall back to the client name. Then kept up to date by dao.CommandeDAO
+-- and, when a client is renamed, by dao.ClientDAO.
+
+alter table Commande add column clientNom varchar(255);
+create index idx_commande_client_nom on Commande (clientNom);
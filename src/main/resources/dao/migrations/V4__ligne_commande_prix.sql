@@ -0,0 +1,6 @@
+-- Unit price and subtotal of each line, recorded when the command is saved.
+-- The existing lines stay null here: service.LignePrixBackfill fills them in small
+-- chunks in the background, instead of one UPDATE locking the whole table.
+
+alter table Ligne_Commande add column prix_unitaire float(23);
+alter table Ligne_Commande add column sous_total float(23);
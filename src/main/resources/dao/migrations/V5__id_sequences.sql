@@ -0,0 +1,5 @@
+-- Key blocks handed out by the table generator of every entity.
+-- The rows are written by dao.IdSequenceSeeder at startup, above the largest existing key.
+-- The table may already exist where hbm2ddl=update created it.
+
+create table if not exists id_sequences (seq_name varchar(255) not null, next_val bigint, primary key (seq_name)) engine=InnoDB;
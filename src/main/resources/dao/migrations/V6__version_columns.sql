@@ -0,0 +1,5 @@
+-- Optimistic locking of products and commands: every write increments the version.
+-- Existing rows start at version 0.
+
+alter table Commande add column version integer default 0 not null;
+alter table Produit add column version integer default 0 not null;
@@ -0,0 +1,7 @@
+-- Stock movements recorded per order instead of updating Produit.qtstock, for the
+-- products flagged ledgerStock (none at first); folded back by service.StockCompactor.
+-- The table may already exist where hbm2ddl=update created it.
+
+alter table Produit add column ledgerStock bit default 0 not null;
+create table if not exists StockMovement (id bigint not null, createdAt datetime(6), idcmd integer, produitId integer not null, quantity integer not null, primary key (id)) engine=InnoDB;
+create index idx_stock_movement_produit on StockMovement (produitId);